@@ -1,8 +1,10 @@
 package com.yizhishang.oauth;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.yizhishang.oauth.client.ClientDetailsCache;
 import com.yizhishang.oauth.client.entity.CustomClientDetails;
 import com.yizhishang.oauth.client.entity.OauthClientDetails;
-import com.yizhishang.oauth.client.service.OauthClientDetailsService;
+import com.yizhishang.oauth.client.mapper.OauthClientDetailsMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +14,8 @@ import org.springframework.security.oauth2.provider.ClientRegistrationException;
 import org.springframework.stereotype.Service;
 
 /**
- * 自定义客户端
+ * 自定义客户端, 解析后的客户端信息缓存在本地({@link ClientDetailsCache})
+ * 未命中时直接查库, 不经过redis缓存, 避免事务提交前读到的旧值被重新缓存
  *
  * @author yizhishang
  */
@@ -22,15 +25,21 @@ public class ClientDetailServiceImpl implements ClientDetailsService {
     private static final Logger logger = LoggerFactory.getLogger(ClientDetailServiceImpl.class);
 
     @Autowired
-    private OauthClientDetailsService clientDetailsService;
+    private OauthClientDetailsMapper oauthClientDetailsMapper;
+
+    @Autowired
+    private ClientDetailsCache clientDetailsCache;
 
     @Override
     public ClientDetails loadClientByClientId(String clientId) throws ClientRegistrationException {
-        OauthClientDetails clientDetails = clientDetailsService.queryByClientId(clientId);
-        if (clientDetails == null) {
-            throw new ClientRegistrationException("client认证失败");
-        }
-        return new CustomClientDetails(clientDetails);
+        return clientDetailsCache.get(clientId, () -> {
+            OauthClientDetails clientDetails = oauthClientDetailsMapper.selectOne(
+                    new LambdaQueryWrapper<OauthClientDetails>().eq(OauthClientDetails::getClientId, clientId));
+            if (clientDetails == null) {
+                throw new ClientRegistrationException("client认证失败");
+            }
+            return new CustomClientDetails(clientDetails);
+        });
     }
 }
 
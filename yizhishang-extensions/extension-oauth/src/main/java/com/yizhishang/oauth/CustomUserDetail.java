@@ -1,13 +1,14 @@
 package com.yizhishang.oauth;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author yizhishang
@@ -15,18 +16,62 @@ import java.util.Set;
 @Data
 public class CustomUserDetail implements UserDetails {
 
+    private Long userId;
     private String username;
     private String password;
 
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        // 找查角色
-        Set<GrantedAuthority> grantedAuthorities = new HashSet<>();
+    /**
+     * 角色id
+     */
+    private List<Long> roleIds = Collections.emptyList();
+
+    /**
+     * 角色
+     */
+    private List<String> roles = Collections.emptyList();
+
+    /**
+     * 由角色生成, 不可修改
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private transient Set<GrantedAuthority> authorities;
 
-        grantedAuthorities.add(new SimpleGrantedAuthority("admin"));
-        grantedAuthorities.add(new SimpleGrantedAuthority("user"));
+    public void setRoleIds(Collection<Long> roleIds) {
+        this.roleIds = Collections.unmodifiableList(new ArrayList<>(roleIds));
+    }
+
+    public void setRoles(Collection<String> roles) {
+        this.roles = Collections.unmodifiableList(new ArrayList<>(roles));
+        this.authorities = null;
+    }
+
+    /**
+     * 副本, 角色列表不可修改可以共用
+     *
+     * @return 副本
+     */
+    public CustomUserDetail copy() {
+        CustomUserDetail copy = new CustomUserDetail();
+        copy.userId = userId;
+        copy.username = username;
+        copy.password = password;
+        copy.roleIds = roleIds;
+        copy.roles = roles;
+        copy.authorities = authorities;
+        return copy;
+    }
 
-        return grantedAuthorities;
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        Set<GrantedAuthority> current = authorities;
+        if (current == null) {
+            Set<GrantedAuthority> grantedAuthorities = new LinkedHashSet<>(roles.size() * 2);
+            roles.forEach(role -> grantedAuthorities.add(new SimpleGrantedAuthority(role)));
+            current = Collections.unmodifiableSet(grantedAuthorities);
+            authorities = current;
+        }
+        return current;
     }
 
     @Override
@@ -1,34 +1,120 @@
 package com.yizhishang.oauth;
 
-import com.yizhishang.oauth.user.entity.UmUser;
+import com.google.common.collect.Iterables;
+import com.yizhishang.oauth.user.UserDetailsCache;
+import com.yizhishang.oauth.user.UserRole;
+import com.yizhishang.oauth.user.bloom.UmUserBloomFilterProvider;
+import com.yizhishang.oauth.user.mapper.UmUserMapper;
 import com.yizhishang.oauth.user.service.UmUserService;
+import com.yizhishang.redis.bloom.BloomFilterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.oauth2.common.exceptions.UnauthorizedUserException;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+import java.util.stream.Collectors;
+
 /**
+ * 加载用户; 登录成功且密码加密方式需要升级时保存重新加密的密码
+ * <pre>
+ * 1. 用户及其角色一次联表查询, 结果缓存在本地({@link UserDetailsCache}), 角色或用户角色变化时清除
+ * 2. 布隆过滤器(本地副本 + redis bitmap)判断账号不存在时不查询数据库; 用户不存在时抛出 UsernameNotFoundException
+ * 3. loadUsersByUsernames 批量加载, 每批一次查询
+ * </pre>
+ *
  * @author by yizhishang
  * @since 2020/1/2 10:38
  */
 @Service
-public class CustomUserDetailServiceImpl implements UserDetailsService {
+public class CustomUserDetailServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final int BATCH_SIZE = 500;
 
     @Autowired
     private UmUserService umUserService;
 
+    @Autowired
+    private UmUserMapper umUserMapper;
+
+    @Autowired
+    private BloomFilterRegistry bloomFilterRegistry;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException, UnauthorizedUserException {
-        CustomUserDetail customUserDetail = new CustomUserDetail();
-        UmUser user = umUserService.query(username);
-        if (user != null) {
-            customUserDetail.setUsername(user.getAccount());
-            customUserDetail.setPassword(user.getPassword());
+        CustomUserDetail customUserDetail = userDetailsCache.get(username);
+        if (customUserDetail != null) {
             return customUserDetail;
         }
-        return null;
+        // 本地判断不存在时会再查redis bitmap, 其他节点刚新增的用户不会被拦截
+        if (bloomFilterRegistry.mightContain(UmUserBloomFilterProvider.NAME, username)) {
+            customUserDetail = load(Collections.singletonList(username)).get(username);
+        }
+        if (customUserDetail == null) {
+            throw new UsernameNotFoundException("用户不存在: " + username);
+        }
+        return customUserDetail;
+    }
+
+    /**
+     * 批量加载用户(含角色), 已缓存的用户不查询数据库
+     *
+     * @param usernames 用户名
+     * @return 用户名 -> 用户, 不含不存在的用户
+     */
+    public Map<String, CustomUserDetail> loadUsersByUsernames(Collection<String> usernames) {
+        Set<String> distinct = new LinkedHashSet<>(usernames);
+        Map<String, CustomUserDetail> result = new HashMap<>(distinct.size() * 2);
+        result.putAll(userDetailsCache.getAll(distinct));
+        List<String> missing = distinct.stream().filter(username -> !result.containsKey(username)).collect(Collectors.toList());
+        for (List<String> batch : Iterables.partition(missing, BATCH_SIZE)) {
+            result.putAll(load(batch));
+        }
+        return result;
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        umUserService.updatePassword(user.getUsername(), newPassword);
+        userDetailsCache.evict(user.getUsername());
+        if (user instanceof CustomUserDetail) {
+            ((CustomUserDetail) user).setPassword(newPassword);
+        }
+        return user;
     }
-}
 
+    /**
+     * 一次联表查询用户及其角色, 放入缓存
+     */
+    private Map<String, CustomUserDetail> load(Collection<String> usernames) {
+        Map<String, List<UserRole>> rows = umUserMapper.selectUserRoles(usernames).stream()
+                .collect(Collectors.groupingBy(UserRole::getAccount, LinkedHashMap::new, Collectors.toList()));
+        Map<String, CustomUserDetail> result = new HashMap<>(rows.size() * 2);
+        rows.forEach((account, userRoles) -> {
+            UserRole first = userRoles.get(0);
+            List<Long> roleIds = new ArrayList<>(userRoles.size());
+            List<String> roles = new ArrayList<>(userRoles.size());
+            for (UserRole userRole : userRoles) {
+                if (userRole.getRole() != null) {
+                    roleIds.add(userRole.getRoleId());
+                    roles.add(userRole.getRole());
+                }
+            }
+            CustomUserDetail customUserDetail = new CustomUserDetail();
+            customUserDetail.setUserId(first.getUserId());
+            customUserDetail.setUsername(account);
+            customUserDetail.setPassword(first.getPassword());
+            customUserDetail.setRoleIds(roleIds);
+            customUserDetail.setRoles(roles);
+            userDetailsCache.put(customUserDetail);
+            result.put(account, customUserDetail);
+        });
+        return result;
+    }
+}
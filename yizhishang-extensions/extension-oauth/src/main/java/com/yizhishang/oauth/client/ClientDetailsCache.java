@@ -0,0 +1,115 @@
+package com.yizhishang.oauth.client;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端信息本地缓存, 已知客户端申请token时不访问数据库/redis
+ * <pre>
+ * 1. 缓存解析好的 ClientDetails, 最长 cacheTtl 秒(兜底, 防止漏收失效消息)
+ * 2. 客户端修改/删除时(事务提交后)调用 evict: 清除本地缓存并通过pub/sub广播clientId, 各节点清除
+ * 不存在的客户端不缓存
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class ClientDetailsCache implements SmartInitializingSingleton {
+
+    private static final String CHANNEL = "oauth:client:channel";
+
+    @Value("${oauth.client.cacheSize:1000}")
+    private long cacheSize;
+
+    /**
+     * 最长缓存时间(秒)
+     */
+    @Value("${oauth.client.cacheTtl:600}")
+    private long cacheTtl;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private Cache<String, ClientDetails> cache;
+
+    public ClientDetailsCache(StringRedisTemplate stringRedisTemplate, RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder().maximumSize(cacheSize).expireAfterWrite(cacheTtl, TimeUnit.SECONDS).build();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        redisMessageListenerContainer.addMessageListener((message, pattern) ->
+                cache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 读取客户端信息, 本地没有时加载
+     *
+     * @param clientId 客户端id
+     * @param loader   加载, 客户端不存在时抛出 ClientRegistrationException
+     * @return 客户端信息
+     */
+    public ClientDetails get(String clientId, Callable<ClientDetails> loader) {
+        try {
+            return cache.get(clientId, loader);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ClientRegistrationException) {
+                throw (ClientRegistrationException) e.getCause();
+            }
+            throw new ClientRegistrationException("client加载失败", e.getCause());
+        }
+    }
+
+    /**
+     * 客户端信息变化, 在事务中调用时提交后清除
+     *
+     * @param clientId 客户端id
+     */
+    public void evict(String clientId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(clientId);
+                }
+            });
+        } else {
+            publish(clientId);
+        }
+    }
+
+    private void publish(String clientId) {
+        cache.invalidate(clientId);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, clientId);
+        } catch (Exception e) {
+            // 其他节点最多 cacheTtl 秒后重新加载
+            log.error("客户端[{}]缓存失效通知失败", clientId, e);
+        }
+    }
+}
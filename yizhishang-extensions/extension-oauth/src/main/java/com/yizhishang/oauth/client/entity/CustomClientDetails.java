@@ -1,7 +1,7 @@
 package com.yizhishang.oauth.client.entity;
 
-import com.fasterxml.jackson.core.util.Separators;
-import com.google.common.collect.Sets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSortedSet;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.provider.ClientDetails;
 
@@ -12,7 +12,7 @@ import java.util.Map;
 import java.util.Set;
 
 /**
- * @Description TODO
+ * @Description 客户端信息, 逗号分隔的字段在创建时解析为不可修改的集合
  * @since 2020/5/19 15:18
  * @author by yizhishang
  */
@@ -20,10 +20,20 @@ public class CustomClientDetails implements ClientDetails, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Splitter SPLITTER = Splitter.on(',').omitEmptyStrings();
+
     private OauthClientDetails clientDetails;
 
+    private Set<String> resourceIds;
+
+    private Set<String> scope;
+
+    private Set<String> authorizedGrantTypes;
+
+    private Set<String> registeredRedirectUri;
+
     public CustomClientDetails(OauthClientDetails clientDetails) {
-        this.clientDetails = clientDetails;
+        setOauthClientDetails(clientDetails);
     }
 
     public OauthClientDetails getOauthClientDetails() {
@@ -32,6 +42,10 @@ public class CustomClientDetails implements ClientDetails, Serializable {
 
     public void setOauthClientDetails(OauthClientDetails clientDto) {
         this.clientDetails = clientDto;
+        this.resourceIds = stringToSet(clientDto.getResourceIds());
+        this.scope = stringToSet(clientDto.getScope());
+        this.authorizedGrantTypes = stringToSet(clientDto.getAuthorizedGrantTypes());
+        this.registeredRedirectUri = stringToSet(clientDto.getWebServerRedirectUri());
     }
 
     @Override
@@ -41,7 +55,7 @@ public class CustomClientDetails implements ClientDetails, Serializable {
 
     @Override
     public Set<String> getResourceIds() {
-        return stringToSet(clientDetails.getResourceIds());
+        return resourceIds;
     }
 
     @Override
@@ -61,17 +75,17 @@ public class CustomClientDetails implements ClientDetails, Serializable {
 
     @Override
     public Set<String> getScope() {
-        return stringToSet(clientDetails.getScope());
+        return scope;
     }
 
     @Override
     public Set<String> getAuthorizedGrantTypes() {
-        return stringToSet(clientDetails.getAuthorizedGrantTypes());
+        return authorizedGrantTypes;
     }
 
     @Override
     public Set<String> getRegisteredRedirectUri() {
-        return stringToSet(clientDetails.getWebServerRedirectUri());
+        return registeredRedirectUri;
     }
 
     @Override
@@ -103,12 +117,6 @@ public class CustomClientDetails implements ClientDetails, Serializable {
         if (input == null) {
             return null;
         }
-        Separators separators = Separators.createDefaultInstance();
-        String[] values = input.split(String.valueOf(separators.getObjectEntrySeparator()));
-        Set<String> set = Sets.newTreeSet();
-        for(String value: values){
-            set.add(value);
-        }
-        return set;
+        return ImmutableSortedSet.copyOf(SPLITTER.split(input));
     }
 }
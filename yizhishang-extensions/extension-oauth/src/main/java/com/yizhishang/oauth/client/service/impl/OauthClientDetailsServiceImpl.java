@@ -3,11 +3,13 @@ package com.yizhishang.oauth.client.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.yizhishang.common.exception.BizException;
+import com.yizhishang.oauth.client.ClientDetailsCache;
 import com.yizhishang.oauth.client.entity.OauthClientDetails;
 import com.yizhishang.oauth.client.mapper.OauthClientDetailsMapper;
 import com.yizhishang.oauth.client.service.OauthClientDetailsService;
 import com.yizhishang.redis.cache.annotation.RedisCache;
 import com.yizhishang.redis.cache.annotation.RedisEvict;
+import com.yizhishang.redis.util.RedisUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -23,9 +25,17 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class OauthClientDetailsServiceImpl extends ServiceImpl<OauthClientDetailsMapper, OauthClientDetails> implements OauthClientDetailsService {
 
+    private static final String CACHE_PREFIX = "OauthClientDetails:query:";
+
     @Autowired
     private OauthClientDetailsMapper oauthClientDetailsMapper;
 
+    @Autowired
+    private ClientDetailsCache clientDetailsCache;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
     @Override
     @RedisCache(key = "OauthClientDetails:query:#clientId")
     public OauthClientDetails queryByClientId(String clientId) {
@@ -42,21 +52,26 @@ public class OauthClientDetailsServiceImpl extends ServiceImpl<OauthClientDetail
     }
 
     @Override
-    @RedisEvict(keys = "OauthClientDetails:query:#oauthClientDetails.id")
+    @RedisEvict(keys = "OauthClientDetails:query:#oauthClientDetails.clientId")
     @Transactional(rollbackFor = Exception.class)
     public OauthClientDetails modify(OauthClientDetails oauthClientDetails) {
         if (!this.updateById(oauthClientDetails)) {
             throw new BizException("更新失败");
         }
+        clientDetailsCache.evict(oauthClientDetails.getClientId());
         return oauthClientDetails;
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void delete(Long oauthClientDetailsId) {
-        if (!this.removeById(oauthClientDetailsId)) {
+        OauthClientDetails stored = getById(oauthClientDetailsId);
+        if (stored == null || !this.removeById(oauthClientDetailsId)) {
             throw new BizException("删除失败");
         }
+        // 缓存按clientId存放
+        redisUtil.remove(CACHE_PREFIX + stored.getClientId());
+        clientDetailsCache.evict(stored.getClientId());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.yizhishang.oauth.client.warmup;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.yizhishang.oauth.client.entity.OauthClientDetails;
+import com.yizhishang.oauth.client.mapper.OauthClientDetailsMapper;
+import com.yizhishang.oauth.client.service.impl.OauthClientDetailsServiceImpl;
+import com.yizhishang.redis.cache.warmup.CacheWarmUpEntry;
+import com.yizhishang.redis.cache.warmup.CacheWarmUpProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 客户端信息缓存预热, 对应 {@link OauthClientDetailsServiceImpl#queryByClientId(String)}
+ *
+ * @author yizhishang
+ */
+@Component
+public class OauthClientDetailsWarmUpProvider implements CacheWarmUpProvider {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final Method QUERY_METHOD = ReflectionUtils.findMethod(OauthClientDetailsServiceImpl.class, "queryByClientId", String.class);
+
+    private final OauthClientDetailsMapper oauthClientDetailsMapper;
+
+    public OauthClientDetailsWarmUpProvider(OauthClientDetailsMapper oauthClientDetailsMapper) {
+        this.oauthClientDetailsMapper = oauthClientDetailsMapper;
+    }
+
+    @Override
+    public String name() {
+        return "OauthClientDetails";
+    }
+
+    @Override
+    public Method method() {
+        return QUERY_METHOD;
+    }
+
+    /**
+     * 按clientId分批读取
+     */
+    @Override
+    public void load(Consumer<List<CacheWarmUpEntry>> sink) {
+        String lastClientId = "";
+        List<OauthClientDetails> clients;
+        do {
+            clients = oauthClientDetailsMapper.selectList(new LambdaQueryWrapper<OauthClientDetails>()
+                    .gt(OauthClientDetails::getClientId, lastClientId)
+                    .orderByAsc(OauthClientDetails::getClientId)
+                    .last("limit " + BATCH_SIZE));
+            if (clients.isEmpty()) {
+                break;
+            }
+            sink.accept(clients.stream()
+                    .map(client -> CacheWarmUpEntry.of(client, client.getClientId()))
+                    .collect(Collectors.toList()));
+            lastClientId = clients.get(clients.size() - 1).getClientId();
+        } while (clients.size() == BATCH_SIZE);
+    }
+}
@@ -2,12 +2,18 @@ package com.yizhishang.oauth.config;
 
 import com.yizhishang.oauth.ClientDetailServiceImpl;
 import com.yizhishang.oauth.CustomUserDetailServiceImpl;
+import com.yizhishang.oauth.token.CachingTokenStore;
+import com.yizhishang.oauth.token.TokenRevocationService;
+import com.yizhishang.oauth.token.key.KeyRingJwtAccessTokenConverter;
+import com.yizhishang.oauth.token.key.RemoteJwkSource;
+import com.yizhishang.oauth.token.key.SigningKeyRing;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.jwt.crypto.sign.MacSigner;
 import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.config.annotation.configurers.ClientDetailsServiceConfigurer;
@@ -77,6 +83,27 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
     @Autowired
     private WebResponseExceptionTranslator webResponseExceptionTranslator;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    /**
+     * 授权服务的签名密钥; 配置了 oauth.jwt.jwksUri 时没有, 从远程JWKS读取验签公钥
+     */
+    @Autowired
+    private ObjectProvider<SigningKeyRing> signingKeyRing;
+
+    @Autowired
+    private ObjectProvider<RemoteJwkSource> remoteJwkSource;
+
+    /**
+     * 已校验token的本地缓存: 最多缓存数、最长缓存时间(秒)
+     */
+    @Value("${oauth.token.cacheSize:100000}")
+    private long tokenCacheSize;
+
+    @Value("${oauth.token.cacheTtl:600}")
+    private long tokenCacheTtl;
+
     /**
      * 配置 password 授权模式
      *
@@ -118,8 +145,8 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 
     @Bean
     public TokenStore tokenStore() {
-        //基于jwt实现令牌（Access Token）
-        return new JwtTokenStore(jwtAccessTokenConverter());
+        //基于jwt实现令牌（Access Token）, 验签结果本地缓存, PermitAuthenticationFilter 与资源服务共用; 支持吊销
+        return new CachingTokenStore(new JwtTokenStore(jwtAccessTokenConverter()), tokenRevocationService, tokenCacheSize, tokenCacheTtl);
     }
 
     /**
@@ -142,7 +169,10 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 
     @Bean
     public JwtAccessTokenConverter jwtAccessTokenConverter() {
-        JwtAccessTokenConverter converter = new JwtAccessTokenConverter() {
+        //非对称签名(oauth.jwt.algorithm), 密钥定期轮换, 公钥通过 /oauth/jwks 公开
+        SigningKeyRing keyRing = signingKeyRing.getIfAvailable();
+        RemoteJwkSource remote = remoteJwkSource.getIfAvailable();
+        JwtAccessTokenConverter converter = new KeyRingJwtAccessTokenConverter(keyRing, remote != null ? remote : keyRing) {
             /**
              * 自定义一些token返回的信息
              * @param accessToken
@@ -163,8 +193,6 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
                 return super.enhance(accessToken, authentication);
             }
         };
-        converter.setSigningKey("test123");
-        converter.setVerifier(new MacSigner("test123"));
         return converter;
     }
 }
\ No newline at end of file
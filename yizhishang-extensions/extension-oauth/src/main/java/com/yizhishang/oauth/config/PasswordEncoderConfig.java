@@ -0,0 +1,118 @@
+package com.yizhishang.oauth.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 密码加密与校验配置
+ *
+ * @author yizhishang
+ */
+@Configuration
+@ConfigurationProperties(prefix = "oauth.password")
+public class PasswordEncoderConfig {
+
+    /**
+     * 新密码的加密方式: bcrypt、pbkdf2、argon2(需要bouncycastle); 旧方式的密码在登录成功后重新加密
+     */
+    private String encoder = "bcrypt";
+
+    /**
+     * BCrypt强度, 低于该强度的密码在登录成功后重新加密
+     */
+    private int strength = 10;
+
+    /**
+     * PBKDF2迭代次数
+     */
+    private int pbkdf2Iterations = 185000;
+
+    /**
+     * 校验线程数, 默认为CPU核数
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 等待校验的最大请求数, 超过时直接拒绝
+     */
+    private int queueSize = 200;
+
+    /**
+     * 等待校验结果的最长时间(毫秒)
+     */
+    private long timeout = 5000;
+
+    /**
+     * 校验成功结果的本地缓存数, 0表示不缓存
+     */
+    private long cacheSize = 10000;
+
+    /**
+     * 校验成功结果的缓存时间(秒)
+     */
+    private long cacheTtl = 300;
+
+    public String getEncoder() {
+        return encoder;
+    }
+
+    public void setEncoder(String encoder) {
+        this.encoder = encoder;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public void setStrength(int strength) {
+        this.strength = strength;
+    }
+
+    public int getPbkdf2Iterations() {
+        return pbkdf2Iterations;
+    }
+
+    public void setPbkdf2Iterations(int pbkdf2Iterations) {
+        this.pbkdf2Iterations = pbkdf2Iterations;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(long cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public void setCacheTtl(long cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+}
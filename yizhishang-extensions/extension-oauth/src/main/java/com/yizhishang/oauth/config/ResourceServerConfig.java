@@ -1,6 +1,7 @@
 package com.yizhishang.oauth.config;
 
 import com.yizhishang.oauth.exception.CustomAuthExceptionHandler;
+import com.yizhishang.oauth.token.key.JwksEndpoint;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -53,6 +54,7 @@ public class ResourceServerConfig extends ResourceServerConfigurerAdapter {
                 .and().authorizeRequests()
                 .antMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 .antMatchers(urls).permitAll()
+                .antMatchers(HttpMethod.GET, JwksEndpoint.PATH).permitAll()
                 .anyRequest().authenticated();
     }
 }
\ No newline at end of file
@@ -23,6 +23,9 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private CustomUserDetailServiceImpl userDetailsService;
 
+    @Autowired
+    private PasswordEncoderConfig passwordEncoderConfig;
+
     /**
      * 需要配置这个支持password模式
      *
@@ -36,14 +39,14 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     }
 
     /**
-     * 指定密码的加密方式: 使用BCrypt强哈希函数加密方案（密钥迭代次数默认为10）
+     * 指定密码的加密方式: 默认使用BCrypt强哈希函数加密方案（oauth.password.strength, 默认为10）, 校验在独立线程池中执行
      *
      * @return
      */
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     @ConditionalOnMissingBean
     public PasswordEncoder passwordEncoder() {
-        return new CustomPasswordEncoder(10);
+        return new CustomPasswordEncoder(passwordEncoderConfig);
     }
 
     @Override
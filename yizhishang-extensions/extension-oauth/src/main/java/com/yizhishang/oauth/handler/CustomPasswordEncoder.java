@@ -1,21 +1,231 @@
 package com.yizhishang.oauth.handler;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.oauth.config.PasswordEncoderConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.util.ClassUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
+ * 密码加密与校验
+ * <pre>
+ * 1. 加密结果带前缀 {bcrypt}/{pbkdf2}/{argon2}, 没有前缀的旧密码按BCrypt校验
+ * 2. 校验和加密(含登录后重新加密)在独立的有界线程池中执行, 与请求线程隔离; 队列已满或等待超时时抛出 AuthenticationServiceException
+ * 3. 校验成功的结果按 sha256(随机盐 + 密文 + 明文) 缓存 cacheTtl 秒, 内存中不保存明文; 修改密码后密文变化, 缓存自然失效
+ * 4. upgradeEncoding: 加密方式与配置不一致或BCrypt强度低于配置时返回true, 登录成功后由 UserDetailsPasswordService 重新加密;
+ *    没有前缀但强度已达到要求的BCrypt密码不重新加密
+ * </pre>
+ *
  * @since 2020/1/8 14:18
  * @author yizhishang
  */
-public class CustomPasswordEncoder extends BCryptPasswordEncoder {
+public class CustomPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomPasswordEncoder.class);
+
+    private static final String BCRYPT = "bcrypt";
+
+    private static final String PBKDF2 = "pbkdf2";
+
+    private static final String ARGON2 = "argon2";
+
+    private static final String BOUNCY_CASTLE = "org.bouncycastle.crypto.params.Argon2Parameters";
+
+    private static final int HASH_WIDTH = 256;
+
+    private static final String PREFIX = "{";
+
+    /**
+     * BCrypt密文: $2a$强度$...
+     */
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    private final DelegatingPasswordEncoder delegate;
+
+    private final String idForEncode;
+
+    private final int strength;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long timeout;
+
+    private final Cache<HashCode, Boolean> verified;
+
+    private final byte[] salt = new byte[16];
+
+    private final AtomicLong verifyCount = new AtomicLong();
+
+    private final AtomicLong verifyNanos = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final AtomicLong cacheHitCount = new AtomicLong();
+
+    public CustomPasswordEncoder(PasswordEncoderConfig config) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(config.getStrength());
+        Map<String, PasswordEncoder> encoders = new HashMap<>(4);
+        encoders.put(BCRYPT, bcrypt);
+        encoders.put(PBKDF2, new Pbkdf2PasswordEncoder("", config.getPbkdf2Iterations(), HASH_WIDTH));
+        if (ClassUtils.isPresent(BOUNCY_CASTLE, CustomPasswordEncoder.class.getClassLoader())) {
+            encoders.put(ARGON2, new Argon2PasswordEncoder());
+        }
+        if (!encoders.containsKey(config.getEncoder())) {
+            throw new IllegalArgumentException("不支持的密码加密方式: " + config.getEncoder());
+        }
+        this.idForEncode = config.getEncoder();
+        this.strength = config.getStrength();
+        this.delegate = new DelegatingPasswordEncoder(config.getEncoder(), encoders);
+        this.delegate.setDefaultPasswordEncoderForMatches(bcrypt);
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueSize()),
+                new ThreadFactoryBuilder().setNameFormat("password-verify-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeout = config.getTimeout();
+        this.verified = config.getCacheSize() > 0
+                ? CacheBuilder.newBuilder().maximumSize(config.getCacheSize()).expireAfterWrite(config.getCacheTtl(), TimeUnit.SECONDS).build()
+                : null;
+        new SecureRandom().nextBytes(salt);
+    }
 
-    public CustomPasswordEncoder(int strength) {
-        super(strength);
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
     }
 
     @Override
     public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        HashCode key = verified == null ? null : cacheKey(rawPassword, encodedPassword);
+        if (key != null && verified.getIfPresent(key) != null) {
+            cacheHitCount.incrementAndGet();
+            return true;
+        }
+        boolean matched = execute(() -> verify(rawPassword, encodedPassword));
+        if (matched && key != null) {
+            verified.put(key, Boolean.TRUE);
+        }
+        return matched;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        // 没有前缀但强度已达到要求的BCrypt密码不重新加密, 避免只为加前缀多算一次
+        if (BCRYPT.equals(idForEncode) && !encodedPassword.startsWith(PREFIX)) {
+            Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+            return !matcher.matches() || Integer.parseInt(matcher.group(1)) < strength;
+        }
+        return delegate.upgradeEncoding(encodedPassword);
+    }
 
-        return super.matches(rawPassword, encodedPassword);
+    /**
+     * 当前校验中和等待校验的请求数
+     *
+     * @return 请求数
+     */
+    public int getQueueSize() {
+        return executor.getActiveCount() + executor.getQueue().size();
     }
 
+    /**
+     * 已执行的校验次数(不含缓存命中)
+     */
+    public long getVerifyCount() {
+        return verifyCount.get();
+    }
+
+    /**
+     * 平均校验耗时(毫秒)
+     */
+    public double getAverageVerifyMillis() {
+        long count = verifyCount.get();
+        return count == 0 ? 0 : verifyNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 因队列已满或等待超时被拒绝的次数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 缓存命中次数
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 在校验线程池中执行, 队列已满或等待超时时拒绝
+     */
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            log.warn("密码校验队列已满, 拒绝登录请求, 等待: {}", executor.getQueue().size());
+            throw new AuthenticationServiceException("登录请求过多, 请稍后重试");
+        }
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCount.incrementAndGet();
+            throw new AuthenticationServiceException("登录请求过多, 请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("密码校验被中断", e);
+        } catch (ExecutionException e) {
+            throw new AuthenticationServiceException("密码校验失败", e.getCause());
+        }
+    }
+
+    private boolean verify(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        try {
+            return delegate.matches(rawPassword, encodedPassword);
+        } finally {
+            verifyNanos.addAndGet(System.nanoTime() - start);
+            verifyCount.incrementAndGet();
+        }
+    }
+
+    private HashCode cacheKey(CharSequence rawPassword, String encodedPassword) {
+        return Hashing.sha256().newHasher()
+                .putBytes(salt)
+                .putString(encodedPassword, StandardCharsets.UTF_8)
+                .putChar('\0')
+                .putString(rawPassword, StandardCharsets.UTF_8)
+                .hash();
+    }
 }
@@ -1,5 +1,6 @@
 package com.yizhishang.oauth.interceptor;
 
+import com.yizhishang.oauth.permission.RoleIndex;
 import org.springframework.security.access.AccessDecisionManager;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.ConfigAttribute;
@@ -12,6 +13,7 @@ import java.util.Iterator;
 
 /**
  * 自定义资源权限访问管理器
+ * 资源所需角色为 {@link RoleConfigAttributes} 时, 与用户的角色集合求交集判断
  *
  * @author yizhishang
  * @since 2020/1/3 15:50
@@ -19,6 +21,12 @@ import java.util.Iterator;
 @Component
 public class CustomAccessDecisionManager implements AccessDecisionManager {
 
+    private final RoleIndex roleIndex;
+
+    public CustomAccessDecisionManager(RoleIndex roleIndex) {
+        this.roleIndex = roleIndex;
+    }
+
     /**
      * 判断是否有权限
      *
@@ -33,6 +41,13 @@ public class CustomAccessDecisionManager implements AccessDecisionManager {
             return;
         }
 
+        if (configAttributes instanceof RoleConfigAttributes) {
+            if (((RoleConfigAttributes) configAttributes).isGranted(roleIndex.authorityBits(auth.getAuthorities()))) {
+                return;
+            }
+            throw new AccessDeniedException("access denied");
+        }
+
         // 判断用户所拥有的权限是否是资源所需要的权限之一，如果是则放行，否则拦截
         Iterator<ConfigAttribute> iter = configAttributes.iterator();
         while (iter.hasNext()) {
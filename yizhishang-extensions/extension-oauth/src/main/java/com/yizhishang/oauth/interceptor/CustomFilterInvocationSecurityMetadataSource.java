@@ -1,24 +1,31 @@
 package com.yizhishang.oauth.interceptor;
 
-import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.util.StrUtil;
-import com.google.common.collect.Maps;
-import com.yizhishang.oauth.config.ResourceIgnoreConfig;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yizhishang.oauth.matcher.IgnoreUrlMatcher;
+import com.yizhishang.oauth.matcher.UrlPatternMatcher;
+import com.yizhishang.oauth.permission.PermissionSnapshot;
+import com.yizhishang.oauth.permission.ResourcePermissionRegistry;
+import com.yizhishang.oauth.permission.RoleIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.access.ConfigAttribute;
-import org.springframework.security.access.SecurityConfig;
 import org.springframework.security.web.FilterInvocation;
 import org.springframework.security.web.access.intercept.FilterInvocationSecurityMetadataSource;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
 
 /**
+ * 请求的资源（url）所需要的权限（角色）
+ * 忽略的资源由 {@link IgnoreUrlMatcher} 判断; 资源权限预编译为 {@link UrlPatternMatcher}, 匹配结果按 请求方法+路径 缓存;
+ * 资源权限来自 {@link ResourcePermissionRegistry}, 快照替换时重新构建并整体替换
+ *
  * @author yizhishang
  * @since 2020/1/3 15:55
  */
@@ -30,7 +37,27 @@ public class CustomFilterInvocationSecurityMetadataSource implements FilterInvoc
     private static final String UNKNOWN_ROLE = "unknownRole";
 
     @Autowired
-    private ResourceIgnoreConfig resourceIgnoreConfig;
+    private IgnoreUrlMatcher ignoreUrlMatcher;
+
+    @Autowired
+    private ResourcePermissionRegistry resourcePermissionRegistry;
+
+    @Autowired
+    private RoleIndex roleIndex;
+
+    /**
+     * 匹配结果缓存的最大路径数
+     */
+    @Value("${oauth.permission.cacheSize:10000}")
+    private long cacheSize;
+
+    private volatile Permissions permissions;
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        resourcePermissionRegistry.addListener(this::refresh);
+    }
 
     /**
      * 获取用户请求的某个具体的资源（url）所需要的权限（角色）集合
@@ -43,49 +70,30 @@ public class CustomFilterInvocationSecurityMetadataSource implements FilterInvoc
         if (request.getMethod().equals(HttpMethod.OPTIONS.toString())) {
             return Collections.emptyList();
         }
-
         // 忽略的资源不走权限控制
-        List<String> ignoreUrls = new ArrayList<>();
-        ignoreUrls.addAll(resourceIgnoreConfig.getIgnore());
-        for (String url : ignoreUrls) {
-            if (StrUtil.isNotBlank(url) && new AntPathRequestMatcher(url).matches(request)) {
-                return Collections.emptyList();
-            }
-        }
-
-        // 遍历每个资源（url），如果与用户请求的资源（url）匹配，则返回该资源（url）所需要的权限（角色）集合
-        List<ConfigAttribute> roles = new ArrayList<>();
-        HashMap<String, Collection<ConfigAttribute>> map = getResourcePermission();
-        Iterator<String> iter = map.keySet().iterator();
-        while (iter.hasNext()) {
-            String url = iter.next();
-            if (StrUtil.isNotBlank(url) && new AntPathRequestMatcher(url).matches(request)) {
-                roles.addAll(map.get(url));
-            }
-        }
-        if (CollUtil.isNotEmpty(roles)) {
-            return roles;
+        if (ignoreUrlMatcher.matches(request)) {
+            return Collections.emptyList();
         }
-        // 没有匹配到资源对应角色,给定一个unknownRole
-        List<ConfigAttribute> unknownRole = new ArrayList<>();
-        unknownRole.add(new SecurityConfig(UNKNOWN_ROLE));
-        return unknownRole;
+        return permissions.get(request.getMethod(), UrlPatternMatcher.getRequestPath(request));
     }
 
     /**
-     * 加载角色资源, 配置成这种样子
-     * map.put("/user/*", adminUrlRoles);
-     * map.put("/role/*", userUrlRoles);
+     * 重新加载资源权限
      */
-    private HashMap<String, Collection<ConfigAttribute>> getResourcePermission() {
-        HashMap<String, Collection<ConfigAttribute>> map = Maps.newHashMap();
+    public void refresh() {
+        refresh(resourcePermissionRegistry.getSnapshot());
+    }
 
+    private synchronized void refresh(PermissionSnapshot snapshot) {
         // 设置资源（url）所需要的权限（角色）集合
-        List<ConfigAttribute> urlRoles = new ArrayList<>();
-        urlRoles.add(new SecurityConfig("admin"));
-
-        map.put("/admin/*", urlRoles);
-        return map;
+        UrlPatternMatcher.Builder<RoleConfigAttributes> resources = UrlPatternMatcher.builder();
+        snapshot.getResources().values().forEach(resource -> resources.add(resource.getUrl(),
+                resource.getMethod() == null ? null : HttpMethod.resolve(resource.getMethod().toUpperCase()),
+                RoleConfigAttributes.of(resource.getRoles(), roleIndex)));
+        // 没有匹配到资源对应角色,给定一个unknownRole
+        RoleConfigAttributes unknownRoles = RoleConfigAttributes.of(Collections.singletonList(UNKNOWN_ROLE), roleIndex);
+        permissions = new Permissions(resources.build(), unknownRoles, cacheSize);
+        log.info("资源权限已加载, 版本: {}", snapshot.getVersion());
     }
 
     @Override
@@ -97,4 +105,42 @@ public class CustomFilterInvocationSecurityMetadataSource implements FilterInvoc
     public boolean supports(Class<?> clazz) {
         return true;
     }
+
+    /**
+     * 一次加载的权限, 加载后不可修改
+     */
+    private static final class Permissions {
+
+        private final UrlPatternMatcher<RoleConfigAttributes> resources;
+
+        private final RoleConfigAttributes unknownRoles;
+
+        private final Cache<String, Collection<ConfigAttribute>> cache;
+
+        private Permissions(UrlPatternMatcher<RoleConfigAttributes> resources, RoleConfigAttributes unknownRoles, long cacheSize) {
+            this.resources = resources;
+            this.unknownRoles = unknownRoles;
+            this.cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        }
+
+        private Collection<ConfigAttribute> get(String method, String path) {
+            String key = method + ' ' + path;
+            Collection<ConfigAttribute> attributes = cache.getIfPresent(key);
+            if (attributes == null) {
+                attributes = resolve(method, path);
+                cache.put(key, attributes);
+            }
+            return attributes;
+        }
+
+        private Collection<ConfigAttribute> resolve(String method, String path) {
+            // 所有匹配的资源（url）所需要的权限（角色）
+            List<RoleConfigAttributes> matched = resources.match(method, path);
+            if (matched.isEmpty()) {
+                return unknownRoles;
+            }
+            RoleConfigAttributes roles = RoleConfigAttributes.union(matched);
+            return roles.isEmpty() ? unknownRoles : roles;
+        }
+    }
 }
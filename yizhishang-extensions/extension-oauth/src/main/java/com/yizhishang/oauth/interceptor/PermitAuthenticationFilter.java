@@ -3,8 +3,8 @@ package com.yizhishang.oauth.interceptor;
 import com.alibaba.fastjson.JSON;
 import com.yizhishang.common.enums.CommonEnum;
 import com.yizhishang.common.response.ResponseData;
-import com.yizhishang.oauth.config.ResourceIgnoreConfig;
 import com.yizhishang.oauth.exception.AuthExceptionEnum;
+import com.yizhishang.oauth.matcher.IgnoreUrlMatcher;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,7 +17,6 @@ import org.springframework.security.oauth2.common.exceptions.InvalidTokenExcepti
 import org.springframework.security.oauth2.provider.authentication.BearerTokenExtractor;
 import org.springframework.security.oauth2.provider.authentication.TokenExtractor;
 import org.springframework.security.oauth2.provider.token.TokenStore;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -48,7 +47,7 @@ public class PermitAuthenticationFilter extends OncePerRequestFilter {
     private TokenStore tokenStore;
 
     @Autowired
-    private ResourceIgnoreConfig resourceIgnoreConfig;
+    private IgnoreUrlMatcher ignoreUrlMatcher;
 
     private boolean isAuthenticated() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -58,11 +57,9 @@ public class PermitAuthenticationFilter extends OncePerRequestFilter {
     @Override
     public void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws IOException, ServletException {
 
-        for (String url : resourceIgnoreConfig.getIgnore()) {
-            if (new AntPathRequestMatcher(url).matches(request)) {
-                filterChain.doFilter(request, response);
-                return;
-            }
+        if (ignoreUrlMatcher.matches(request)) {
+            filterChain.doFilter(request, response);
+            return;
         }
 
         Authentication authentication = this.tokenExtractor.extract(request);
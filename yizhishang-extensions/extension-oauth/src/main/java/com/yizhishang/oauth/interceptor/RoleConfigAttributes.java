@@ -0,0 +1,75 @@
+package com.yizhishang.oauth.interceptor;
+
+import com.yizhishang.oauth.permission.RoleIndex;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+
+import java.util.*;
+
+/**
+ * 资源所需角色, 同时保存角色集合 {@link BitSet}, 供 {@link CustomAccessDecisionManager} 一次求交集判断
+ * 创建后不可修改
+ *
+ * @author yizhishang
+ */
+public final class RoleConfigAttributes extends AbstractCollection<ConfigAttribute> {
+
+    private final List<ConfigAttribute> attributes;
+
+    private final BitSet required;
+
+    private RoleConfigAttributes(List<ConfigAttribute> attributes, BitSet required) {
+        this.attributes = Collections.unmodifiableList(attributes);
+        this.required = required;
+    }
+
+    /**
+     * @param roles     所需角色(满足其一即可)
+     * @param roleIndex 角色编号
+     * @return 所需角色
+     */
+    public static RoleConfigAttributes of(Collection<String> roles, RoleIndex roleIndex) {
+        List<ConfigAttribute> attributes = new ArrayList<>(roles.size());
+        roles.forEach(role -> attributes.add(new SecurityConfig(role)));
+        return new RoleConfigAttributes(attributes, roleIndex.bits(roles));
+    }
+
+    /**
+     * 合并多个资源所需角色
+     *
+     * @param all 所需角色
+     * @return 合并结果
+     */
+    public static RoleConfigAttributes union(List<RoleConfigAttributes> all) {
+        if (all.size() == 1) {
+            return all.get(0);
+        }
+        List<ConfigAttribute> attributes = new ArrayList<>();
+        BitSet required = new BitSet();
+        for (RoleConfigAttributes roles : all) {
+            attributes.addAll(roles.attributes);
+            required.or(roles.required);
+        }
+        return new RoleConfigAttributes(attributes, required);
+    }
+
+    /**
+     * 是否拥有其中一个角色
+     *
+     * @param granted 用户拥有的角色集合
+     * @return true-拥有
+     */
+    public boolean isGranted(BitSet granted) {
+        return required.intersects(granted);
+    }
+
+    @Override
+    public Iterator<ConfigAttribute> iterator() {
+        return attributes.iterator();
+    }
+
+    @Override
+    public int size() {
+        return attributes.size();
+    }
+}
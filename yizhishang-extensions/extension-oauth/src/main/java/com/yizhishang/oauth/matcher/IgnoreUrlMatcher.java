@@ -0,0 +1,106 @@
+package com.yizhishang.oauth.matcher;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yizhishang.oauth.config.ResourceIgnoreConfig;
+import com.yizhishang.oauth.token.key.JwksEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 忽略认证的url(resources.ignore 及内置的 JWKS), PermitAuthenticationFilter 和权限判断共用
+ * 启动时预编译为 {@link UrlPatternMatcher}, 结果按路径缓存; refresh 重新读取配置后整体替换
+ *
+ * @author yizhishang
+ */
+@Component
+public class IgnoreUrlMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(IgnoreUrlMatcher.class);
+
+    private static final String PREFIX = "resources.ignore";
+
+    /**
+     * 结果缓存的最大路径数
+     */
+    @Value("${oauth.ignore.cacheSize:10000}")
+    private long cacheSize;
+
+    private final ResourceIgnoreConfig resourceIgnoreConfig;
+
+    private final Environment environment;
+
+    private volatile Compiled compiled;
+
+    public IgnoreUrlMatcher(ResourceIgnoreConfig resourceIgnoreConfig, Environment environment) {
+        this.resourceIgnoreConfig = resourceIgnoreConfig;
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void init() {
+        compile(resourceIgnoreConfig.getIgnore());
+    }
+
+    /**
+     * 请求是否忽略认证
+     *
+     * @param request 请求
+     * @return true-忽略
+     */
+    public boolean matches(HttpServletRequest request) {
+        return compiled.matches(UrlPatternMatcher.getRequestPath(request));
+    }
+
+    /**
+     * 重新读取 resources.ignore
+     */
+    public synchronized void refresh() {
+        List<String> ignore = Binder.get(environment).bind(PREFIX, Bindable.listOf(String.class)).orElseGet(ArrayList::new);
+        resourceIgnoreConfig.setIgnore(ignore);
+        compile(ignore);
+    }
+
+    private void compile(List<String> ignore) {
+        UrlPatternMatcher.Builder<Boolean> builder = UrlPatternMatcher.builder();
+        ignore.forEach(url -> builder.add(url, Boolean.TRUE));
+        builder.add(JwksEndpoint.PATH, Boolean.TRUE);
+        compiled = new Compiled(builder.build(), cacheSize);
+        log.info("忽略认证的url已加载: {}", ignore);
+    }
+
+    private static final class Compiled {
+
+        private final UrlPatternMatcher<Boolean> matcher;
+
+        private final Cache<String, Boolean> cache;
+
+        private Compiled(UrlPatternMatcher<Boolean> matcher, long cacheSize) {
+            this.matcher = matcher;
+            this.cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        }
+
+        private boolean matches(String path) {
+            if (matcher.isEmpty()) {
+                return false;
+            }
+            Boolean matched = cache.getIfPresent(path);
+            if (matched == null) {
+                // 忽略规则不区分请求方法
+                matched = matcher.matches(null, path);
+                cache.put(path, matched);
+            }
+            return matched;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.yizhishang.oauth.matcher;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+
+/**
+ * 预编译的Ant风格url匹配(与 AntPathRequestMatcher 结果一致, 区分大小写)
+ * <pre>
+ * 1. 不含通配符的规则: 按规范化路径放入HashMap, 一次查找
+ * 2. "/"开头的通配规则: 按路径段建字典树, 只检查沿请求路径能到达的规则;
+ *    "/a/b/**" 这类前缀规则到达即命中, 其余候选再用 AntPathMatcher 校验
+ * 3. 其他规则(不以"/"开头): 逐个用 AntPathMatcher 校验
+ * 构建后不可修改, 规则变化时重新构建并整体替换
+ * </pre>
+ *
+ * @param <T> 规则携带的值
+ * @author yizhishang
+ */
+public final class UrlPatternMatcher<T> {
+
+    private static final String SEPARATOR = "/";
+
+    private static final String ANY_SEGMENT = "*";
+
+    private static final String ANY_PATH = "**";
+
+    private static final String MATCH_ALL = "/**";
+
+    private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+
+    private final Map<String, List<Rule<T>>> exact;
+
+    private final Node<T> root;
+
+    private final List<Rule<T>> others;
+
+    private final int size;
+
+    private UrlPatternMatcher(Builder<T> builder) {
+        this.exact = builder.exact;
+        this.root = builder.root;
+        this.others = builder.others;
+        this.size = builder.size;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 请求路径, 与 AntPathRequestMatcher 相同(servletPath + pathInfo)
+     *
+     * @param request 请求
+     * @return 路径
+     */
+    public static String getRequestPath(HttpServletRequest request) {
+        String url = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        return pathInfo == null ? url : url + pathInfo;
+    }
+
+    /**
+     * 匹配的所有规则的值, 按添加顺序
+     *
+     * @param method 请求方法
+     * @param path   请求路径
+     * @return 值, 没有匹配时为空
+     */
+    public List<T> match(String method, String path) {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        String[] segments = tokenize(path);
+        boolean absolute = path.startsWith(SEPARATOR);
+        boolean trailingSlash = path.endsWith(SEPARATOR);
+        Set<Rule<T>> candidates = new HashSet<>();
+        List<Rule<T>> matched = new ArrayList<>();
+        List<Rule<T>> exactRules = exact.get(normalize(absolute, segments, trailingSlash));
+        if (exactRules != null) {
+            matched.addAll(exactRules);
+        }
+        if (absolute) {
+            walk(root, segments, 0, trailingSlash, candidates);
+        }
+        candidates.addAll(others);
+        for (Rule<T> rule : candidates) {
+            if (!rule.verify || ANT_PATH_MATCHER.match(rule.pattern, path)) {
+                matched.add(rule);
+            }
+        }
+        List<T> values = new ArrayList<>(matched.size());
+        matched.stream()
+                .filter(rule -> rule.method == null || rule.method.matches(method))
+                .sorted(Comparator.comparingInt(rule -> rule.order))
+                .forEach(rule -> values.add(rule.value));
+        return values;
+    }
+
+    /**
+     * 是否有规则匹配
+     *
+     * @param method 请求方法
+     * @param path   请求路径
+     * @return true-匹配
+     */
+    public boolean matches(String method, String path) {
+        return !match(method, path).isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 沿请求路径遍历字典树, 收集可能匹配的规则
+     */
+    private static <T> void walk(Node<T> node, String[] segments, int index, boolean trailingSlash, Set<Rule<T>> candidates) {
+        if (node.anyPath != null) {
+            // "**" 匹配0到多个路径段
+            for (int i = index; i <= segments.length; i++) {
+                walk(node.anyPath, segments, i, trailingSlash, candidates);
+            }
+        }
+        if (index == segments.length) {
+            candidates.addAll(node.rules);
+            if (trailingSlash && node.anySegment != null) {
+                // AntPathMatcher: "/a/*" 匹配 "/a/"
+                candidates.addAll(node.anySegment.rules);
+            }
+            return;
+        }
+        Node<T> literal = node.literals.get(segments[index]);
+        if (literal != null) {
+            walk(literal, segments, index + 1, trailingSlash, candidates);
+        }
+        if (node.anySegment != null) {
+            walk(node.anySegment, segments, index + 1, trailingSlash, candidates);
+        }
+        for (Node<T> wildcard : node.wildcards.values()) {
+            walk(wildcard, segments, index + 1, trailingSlash, candidates);
+        }
+    }
+
+    private static String[] tokenize(String path) {
+        return StringUtils.tokenizeToStringArray(path, SEPARATOR, false, true);
+    }
+
+    private static String normalize(boolean absolute, String[] segments, boolean trailingSlash) {
+        String path = String.join(SEPARATOR, segments);
+        if (absolute) {
+            path = SEPARATOR + path;
+        }
+        return trailingSlash && segments.length > 0 ? path + SEPARATOR : path;
+    }
+
+    private static boolean isWildcard(String segment) {
+        return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0;
+    }
+
+    public static final class Builder<T> {
+
+        private final Map<String, List<Rule<T>>> exact = new HashMap<>();
+
+        private final Node<T> root = new Node<>();
+
+        private final List<Rule<T>> others = new ArrayList<>();
+
+        private int size;
+
+        private Builder() {
+        }
+
+        /**
+         * 添加规则, 所有请求方法
+         *
+         * @param pattern Ant风格路径
+         * @param value   值
+         * @return this
+         */
+        public Builder<T> add(String pattern, T value) {
+            return add(pattern, null, value);
+        }
+
+        /**
+         * 添加规则
+         *
+         * @param pattern Ant风格路径
+         * @param method  请求方法, null-所有方法
+         * @param value   值
+         * @return this
+         */
+        public Builder<T> add(String pattern, HttpMethod method, T value) {
+            if (!StringUtils.hasText(pattern)) {
+                return this;
+            }
+            if (ANY_PATH.equals(pattern)) {
+                pattern = MATCH_ALL;
+            }
+            String[] segments = tokenize(pattern);
+            boolean absolute = pattern.startsWith(SEPARATOR);
+            boolean prefix = true;
+            boolean literal = true;
+            for (int i = 0; i < segments.length; i++) {
+                if (isWildcard(segments[i])) {
+                    literal = false;
+                    prefix &= i == segments.length - 1 && ANY_PATH.equals(segments[i]);
+                }
+            }
+            Rule<T> rule = new Rule<>(pattern, method, value, size++, !(absolute && !literal && prefix));
+            if (literal) {
+                exact.computeIfAbsent(normalize(absolute, segments, pattern.endsWith(SEPARATOR)), k -> new ArrayList<>(1)).add(rule);
+            } else if (absolute) {
+                Node<T> node = root;
+                for (String segment : segments) {
+                    node = node.child(segment);
+                }
+                node.rules.add(rule);
+            } else {
+                others.add(rule);
+            }
+            return this;
+        }
+
+        public UrlPatternMatcher<T> build() {
+            return new UrlPatternMatcher<>(this);
+        }
+    }
+
+    private static final class Node<T> {
+
+        private final Map<String, Node<T>> literals = new HashMap<>();
+
+        /**
+         * "{id}"、"*.js" 等段内通配, 到达后由 AntPathMatcher 校验
+         */
+        private final Map<String, Node<T>> wildcards = new HashMap<>();
+
+        private final List<Rule<T>> rules = new ArrayList<>(1);
+
+        private Node<T> anySegment;
+
+        private Node<T> anyPath;
+
+        private Node<T> child(String segment) {
+            if (ANY_PATH.equals(segment)) {
+                if (anyPath == null) {
+                    anyPath = new Node<>();
+                }
+                return anyPath;
+            }
+            if (ANY_SEGMENT.equals(segment)) {
+                if (anySegment == null) {
+                    anySegment = new Node<>();
+                }
+                return anySegment;
+            }
+            return (isWildcard(segment) ? wildcards : literals).computeIfAbsent(segment, k -> new Node<>());
+        }
+    }
+
+    private static final class Rule<T> {
+
+        private final String pattern;
+
+        private final HttpMethod method;
+
+        private final T value;
+
+        private final int order;
+
+        /**
+         * 是否需要 AntPathMatcher 校验
+         */
+        private final boolean verify;
+
+        private Rule(String pattern, HttpMethod method, T value, int order, boolean verify) {
+            this.pattern = pattern;
+            this.method = method;
+            this.value = value;
+            this.order = order;
+            this.verify = verify;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.yizhishang.oauth.permission;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 某一版本的全部资源权限, 创建后不可修改
+ *
+ * @author yizhishang
+ */
+@Getter
+public final class PermissionSnapshot {
+
+    static final PermissionSnapshot EMPTY = new PermissionSnapshot(0, Collections.emptyMap());
+
+    /**
+     * 对应redis中的权限版本号
+     */
+    private final long version;
+
+    /**
+     * 资源id -> 资源
+     */
+    private final Map<Long, Resource> resources;
+
+    PermissionSnapshot(long version, Map<Long, Resource> resources) {
+        this.version = version;
+        this.resources = Collections.unmodifiableMap(resources);
+    }
+
+    @Getter
+    public static final class Resource {
+
+        private final String url;
+
+        /**
+         * 请求方法, null-所有方法
+         */
+        private final String method;
+
+        /**
+         * 所需角色(满足其一即可)
+         */
+        private final List<String> roles;
+
+        Resource(String url, String method, List<String> roles) {
+            this.url = url;
+            this.method = method;
+            this.roles = Collections.unmodifiableList(roles);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.yizhishang.oauth.permission;
+
+import lombok.Data;
+
+/**
+ * 资源与角色的关联(um_resource + um_role_resource + um_role 联表查询结果)
+ *
+ * @author yizhishang
+ */
+@Data
+public class ResourcePermission {
+
+    private Long resourceId;
+
+    private String url;
+
+    private String method;
+
+    private String role;
+}
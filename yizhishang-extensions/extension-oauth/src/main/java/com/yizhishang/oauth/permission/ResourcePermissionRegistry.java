@@ -0,0 +1,221 @@
+package com.yizhishang.oauth.permission;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.oauth.user.mapper.UmResourceMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 资源权限(um_resource/um_role_resource)的内存快照
+ * <pre>
+ * 1. 启动时联表查询全部资源权限, 生成不可修改的 {@link PermissionSnapshot}
+ * 2. 资源或角色变化时(事务提交后)调用 changed: redis版本号加1, 并通过pub/sub广播 "版本号|资源id,..."
+ * 3. 各节点收到广播: 版本连续时只重新查询变化的资源, 复制当前快照修改后整体替换; 不连续(漏收消息)或未指定资源时全量加载
+ * 4. 每 checkInterval 秒比较redis版本号, 不一致时全量加载
+ * 快照在单个后台线程中替换, 读取方不加锁
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class ResourcePermissionRegistry implements SmartInitializingSingleton {
+
+    private static final String VERSION_KEY = "oauth:permission:version";
+
+    private static final String CHANNEL = "oauth:permission:channel";
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 版本号检查间隔(秒)
+     */
+    @Value("${oauth.permission.checkInterval:60}")
+    private long checkInterval;
+
+    private final UmResourceMapper umResourceMapper;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final List<Consumer<PermissionSnapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("permission-refresh-%d").setDaemon(true).build());
+
+    private volatile PermissionSnapshot snapshot = PermissionSnapshot.EMPTY;
+
+    public ResourcePermissionRegistry(UmResourceMapper umResourceMapper, StringRedisTemplate stringRedisTemplate,
+                                      RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.umResourceMapper = umResourceMapper;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reloadAll();
+        redisMessageListenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            executor.execute(() -> onMessage(body));
+        }, new ChannelTopic(CHANNEL));
+        executor.scheduleWithFixedDelay(this::check, checkInterval, checkInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 当前快照
+     *
+     * @return 快照
+     */
+    public PermissionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 快照替换后(在后台线程中)通知
+     *
+     * @param listener 监听
+     */
+    public void addListener(Consumer<PermissionSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 资源权限变化, 在事务中调用时提交后通知
+     *
+     * @param resourceIds 变化的资源id, 为空时全量加载
+     */
+    public void changed(Collection<Long> resourceIds) {
+        List<Long> ids = resourceIds == null ? Collections.emptyList() : new ArrayList<>(resourceIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(ids);
+                }
+            });
+        } else {
+            publish(ids);
+        }
+    }
+
+    private void publish(List<Long> resourceIds) {
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+            stringRedisTemplate.convertAndSend(CHANNEL, version + SEPARATOR + Joiner.on(',').join(resourceIds));
+        } catch (Exception e) {
+            // 其他节点在下次版本检查时更新
+            log.error("资源权限变化通知失败, 资源: {}", resourceIds, e);
+        }
+    }
+
+    private void onMessage(String body) {
+        try {
+            int index = body.indexOf(SEPARATOR);
+            long version = Long.parseLong(body.substring(0, index));
+            String ids = body.substring(index + 1);
+            PermissionSnapshot current = snapshot;
+            if (version <= current.getVersion()) {
+                return;
+            }
+            if (version != current.getVersion() + 1 || StringUtils.isEmpty(ids)) {
+                reloadAll();
+                return;
+            }
+            List<Long> resourceIds = Splitter.on(',').splitToList(ids).stream().map(Long::valueOf).collect(Collectors.toList());
+            reload(current, version, resourceIds);
+        } catch (Exception e) {
+            log.error("资源权限更新失败: {}", body, e);
+        }
+    }
+
+    private void check() {
+        try {
+            if (readVersion() != snapshot.getVersion()) {
+                reloadAll();
+            }
+        } catch (Exception e) {
+            log.error("资源权限版本检查失败", e);
+        }
+    }
+
+    /**
+     * 全量加载; 先读版本号再查询, 查询期间的变化会使版本号不一致, 之后再次加载
+     */
+    private synchronized void reloadAll() {
+        long version = readVersion();
+        Map<Long, PermissionSnapshot.Resource> resources = group(umResourceMapper.selectPermissions(null));
+        replace(new PermissionSnapshot(version, resources));
+        log.info("资源权限全量加载, 版本: {}, 资源数: {}", version, resources.size());
+    }
+
+    /**
+     * 增量加载: 复制当前快照, 替换变化的资源
+     */
+    private synchronized void reload(PermissionSnapshot current, long version, List<Long> resourceIds) {
+        Map<Long, PermissionSnapshot.Resource> resources = new HashMap<>(current.getResources());
+        resourceIds.forEach(resources::remove);
+        resources.putAll(group(umResourceMapper.selectPermissions(resourceIds)));
+        replace(new PermissionSnapshot(version, resources));
+        log.info("资源权限增量加载, 版本: {}, 资源: {}", version, resourceIds);
+    }
+
+    private void replace(PermissionSnapshot next) {
+        snapshot = next;
+        for (Consumer<PermissionSnapshot> listener : listeners) {
+            try {
+                listener.accept(next);
+            } catch (Exception e) {
+                log.error("资源权限监听处理失败", e);
+            }
+        }
+    }
+
+    private long readVersion() {
+        String version = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+        return version == null ? 0 : Long.parseLong(version);
+    }
+
+    private static Map<Long, PermissionSnapshot.Resource> group(List<ResourcePermission> rows) {
+        Map<Long, List<ResourcePermission>> byResource = rows.stream()
+                .collect(Collectors.groupingBy(ResourcePermission::getResourceId, LinkedHashMap::new, Collectors.toList()));
+        Map<Long, PermissionSnapshot.Resource> resources = new HashMap<>(byResource.size() * 2);
+        byResource.forEach((id, permissions) -> {
+            ResourcePermission first = permissions.get(0);
+            List<String> roles = permissions.stream()
+                    .map(ResourcePermission::getRole)
+                    .filter(StringUtils::isNotBlank)
+                    .map(String::trim)
+                    .distinct()
+                    .collect(Collectors.toList());
+            resources.put(id, new PermissionSnapshot.Resource(first.getUrl(), StringUtils.trimToNull(first.getMethod()), roles));
+        });
+        return resources;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
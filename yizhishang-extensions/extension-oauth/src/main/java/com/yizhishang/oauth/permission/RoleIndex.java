@@ -0,0 +1,62 @@
+package com.yizhishang.oauth.permission;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 角色编号: 角色名(去掉首尾空格)对应一个固定的整数, 角色集合表示为 {@link BitSet}
+ * 编号只增不减, 进程内有效
+ *
+ * @author yizhishang
+ */
+@Component
+public class RoleIndex {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * 角色编号
+     *
+     * @param role 角色名
+     * @return 编号
+     */
+    public int id(String role) {
+        return ids.computeIfAbsent(role.trim(), k -> sequence.getAndIncrement());
+    }
+
+    /**
+     * 角色集合
+     *
+     * @param roles 角色名
+     * @return 集合, 调用方不应修改
+     */
+    public BitSet bits(Collection<String> roles) {
+        BitSet bits = new BitSet();
+        roles.forEach(role -> bits.set(id(role)));
+        return bits;
+    }
+
+    /**
+     * 用户拥有的角色集合, 每次直接计算(用户权限很少, 比按集合内容查缓存更快)
+     *
+     * @param authorities 用户权限
+     * @return 集合, 调用方不应修改
+     */
+    public BitSet authorityBits(Collection<? extends GrantedAuthority> authorities) {
+        BitSet bits = new BitSet();
+        for (GrantedAuthority authority : authorities) {
+            if (authority.getAuthority() != null) {
+                bits.set(id(authority.getAuthority()));
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,231 @@
+package com.yizhishang.oauth.token;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存已校验的access token
+ * <pre>
+ * 1. 以token的SHA-256为key, 缓存解析(验签)后的 OAuth2AccessToken 和 OAuth2Authentication
+ * 2. 缓存到token的过期时间(exp), 最长 ttl 秒, 最多 maximumSize 个
+ * 3. 校验失败的token不缓存
+ * 4. readAuthentication 每次返回新的 OAuth2Authentication(details 按请求设置, 不能共享)
+ * 5. 读取时检查本地吊销列表({@link TokenRevocationService}), 已吊销抛出 InvalidTokenException; removeAccessToken 吊销token
+ * 6. refresh token同样检查: 自身jti或签发时对应的access token(ati)已吊销时拒绝; removeRefreshToken 吊销refresh token
+ * 其他方法直接调用被装饰的 TokenStore
+ * </pre>
+ *
+ * @author yizhishang
+ */
+public class CachingTokenStore implements TokenStore {
+
+    private final TokenStore delegate;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final Cache<HashCode, CachedToken> cache;
+
+    private final JsonParser jsonParser = JsonParserFactory.create();
+
+    public CachingTokenStore(TokenStore delegate, TokenRevocationService tokenRevocationService, long maximumSize, long ttl) {
+        this.delegate = delegate;
+        this.tokenRevocationService = tokenRevocationService;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        CachedToken cached = get(tokenValue);
+        if (cached != null) {
+            return checkRevoked(cached.token);
+        }
+        OAuth2AccessToken token = delegate.readAccessToken(tokenValue);
+        if (token != null) {
+            cache.put(hash(tokenValue), new CachedToken(token));
+            checkRevoked(token);
+        }
+        return token;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+        return readAuthentication(token.getValue());
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        CachedToken cached = get(token);
+        if (cached == null) {
+            OAuth2AccessToken accessToken = delegate.readAccessToken(token);
+            if (accessToken == null) {
+                return delegate.readAuthentication(token);
+            }
+            cached = new CachedToken(accessToken);
+            cache.put(hash(token), cached);
+        }
+        checkRevoked(cached.token);
+        OAuth2Authentication authentication = cached.authentication;
+        if (authentication == null) {
+            authentication = delegate.readAuthentication(token);
+            cached.authentication = authentication;
+        }
+        return authentication == null ? null : new OAuth2Authentication(authentication.getOAuth2Request(), authentication.getUserAuthentication());
+    }
+
+    /**
+     * 清除缓存
+     *
+     * @param tokenValue token
+     */
+    public void evict(String tokenValue) {
+        cache.invalidate(hash(tokenValue));
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        delegate.storeAccessToken(token, authentication);
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        tokenRevocationService.revoke(token);
+        evict(token.getValue());
+        delegate.removeAccessToken(token);
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        delegate.storeRefreshToken(refreshToken, authentication);
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        OAuth2RefreshToken token = delegate.readRefreshToken(tokenValue);
+        if (token != null) {
+            checkRevoked(token);
+        }
+        return token;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        checkRevoked(token);
+        return delegate.readAuthenticationForRefreshToken(token);
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        Object jti = claims(token).get(AccessTokenConverter.JTI);
+        if (jti == null) {
+            throw new InvalidTokenException("refresh token没有jti, 无法吊销");
+        }
+        Date expiration = token instanceof ExpiringOAuth2RefreshToken ? ((ExpiringOAuth2RefreshToken) token).getExpiration() : null;
+        tokenRevocationService.revoke(jti.toString(), expiration == null ? Long.MAX_VALUE : expiration.getTime());
+        delegate.removeRefreshToken(token);
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+        delegate.removeAccessTokenUsingRefreshToken(refreshToken);
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        return delegate.getAccessToken(authentication);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+        return delegate.findTokensByClientIdAndUserName(clientId, userName);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+        return delegate.findTokensByClientId(clientId);
+    }
+
+    private OAuth2AccessToken checkRevoked(OAuth2AccessToken token) {
+        if (tokenRevocationService.isRevoked(token)) {
+            throw new InvalidTokenException("Token has been revoked: " + token.getValue());
+        }
+        return token;
+    }
+
+    /**
+     * refresh token自身或签发时对应的access token已吊销
+     */
+    private void checkRevoked(OAuth2RefreshToken token) {
+        Map<String, Object> claims = claims(token);
+        if (isRevoked(claims.get(AccessTokenConverter.JTI)) || isRevoked(claims.get(AccessTokenConverter.ATI))) {
+            throw new InvalidTokenException("Refresh token has been revoked: " + token.getValue());
+        }
+    }
+
+    private boolean isRevoked(Object jti) {
+        return jti != null && tokenRevocationService.isRevoked(jti.toString());
+    }
+
+    /**
+     * refresh token的claims, 读取时已由被装饰的 TokenStore 验签, 这里只解码
+     */
+    private Map<String, Object> claims(OAuth2RefreshToken token) {
+        try {
+            return jsonParser.parseMap(JwtHelper.decode(token.getValue()).getClaims());
+        } catch (RuntimeException e) {
+            throw new InvalidTokenException("Cannot convert refresh token to JSON", e);
+        }
+    }
+
+    /**
+     * 未过期的缓存
+     */
+    private CachedToken get(String tokenValue) {
+        HashCode key = hash(tokenValue);
+        CachedToken cached = cache.getIfPresent(key);
+        if (cached != null && cached.expiresAt <= System.currentTimeMillis()) {
+            cache.invalidate(key);
+            return null;
+        }
+        return cached;
+    }
+
+    private static HashCode hash(String tokenValue) {
+        return Hashing.sha256().hashString(tokenValue, StandardCharsets.UTF_8);
+    }
+
+    private static final class CachedToken {
+
+        private final OAuth2AccessToken token;
+
+        private final long expiresAt;
+
+        private volatile OAuth2Authentication authentication;
+
+        private CachedToken(OAuth2AccessToken token) {
+            this.token = token;
+            Date expiration = token.getExpiration();
+            this.expiresAt = expiration == null ? Long.MAX_VALUE : expiration.getTime();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.yizhishang.oauth.token;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.authentication.OAuth2AuthenticationDetails;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * token吊销入口, 经 {@link DefaultTokenServices#revokeToken} 吊销access token及其refresh token链
+ * 1. 登出: 吊销当前请求携带的token
+ * 2. 吊销指定token: 只能吊销本客户端签发的token, 具有 oauth.revoke.adminAuthority 权限的可吊销任意token
+ *
+ * @author yizhishang
+ */
+@RestController
+public class TokenRevocationEndpoint {
+
+    public static final String LOGOUT_PATH = "/oauth/logout";
+
+    public static final String REVOKE_PATH = "/oauth/revoke";
+
+    private final DefaultTokenServices tokenServices;
+
+    @Value("${oauth.revoke.adminAuthority:ROLE_ADMIN}")
+    private String adminAuthority;
+
+    public TokenRevocationEndpoint(DefaultTokenServices tokenServices) {
+        this.tokenServices = tokenServices;
+    }
+
+    @DeleteMapping(LOGOUT_PATH)
+    public ResponseEntity<Void> logout(Authentication authentication) {
+        if (!(authentication instanceof OAuth2Authentication) || !(authentication.getDetails() instanceof OAuth2AuthenticationDetails)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        tokenServices.revokeToken(((OAuth2AuthenticationDetails) authentication.getDetails()).getTokenValue());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping(REVOKE_PATH)
+    public ResponseEntity<Void> revoke(@RequestParam("token") String token, Authentication authentication) {
+        OAuth2Authentication target;
+        try {
+            target = tokenServices.loadAuthentication(token);
+        } catch (InvalidTokenException e) {
+            // 无效或已吊销的token按成功处理
+            return ResponseEntity.noContent().build();
+        }
+        if (!isAdmin(authentication) && !sameClient(authentication, target)) {
+            throw new AccessDeniedException("无权吊销该token");
+        }
+        tokenServices.revokeToken(token);
+        return ResponseEntity.noContent().build();
+    }
+
+    private boolean isAdmin(Authentication authentication) {
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (adminAuthority.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameClient(Authentication authentication, OAuth2Authentication target) {
+        return authentication instanceof OAuth2Authentication
+                && ((OAuth2Authentication) authentication).getOAuth2Request().getClientId().equals(target.getOAuth2Request().getClientId());
+    }
+}
@@ -0,0 +1,260 @@
+package com.yizhishang.oauth.token;
+
+import com.google.common.collect.Iterators;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.common.exception.BizException;
+import com.yizhishang.redis.util.RedisUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * access token吊销(jwt无法在服务端删除)
+ * <pre>
+ * 0. access token带所属refresh token链的id(rti, 续期时不变)及其过期时间(rexp, 秒), 吊销access token时同时吊销rti, 整条refresh链失效
+ * 1. revoke: redis写入 oauth:revoked:jti, 值为token过期时间, 过期时间为token剩余有效期; 并通过pub/sub广播 "jti|过期时间"
+ * 2. 各节点在本地保存已吊销的jti: 布隆过滤器 + 精确集合, isRevoked 不访问redis(布隆过滤器判断不存在时不查集合)
+ * 3. 启动时及每 syncInterval 秒SCAN redis全量同步(防止漏收广播), 同时清除已过期的jti并重建布隆过滤器
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class TokenRevocationService implements SmartInitializingSingleton {
+
+    private static final String KEY_PREFIX = "oauth:revoked:";
+
+    private static final String CHANNEL = "oauth:revoked:channel";
+
+    private static final String SEPARATOR = "|";
+
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * access token中refresh token链的id(即refresh token的jti)
+     */
+    public static final String REFRESH_TOKEN_ID = "rti";
+
+    /**
+     * access token中refresh token的过期时间(秒)
+     */
+    public static final String REFRESH_EXPIRATION = "rexp";
+
+    /**
+     * 布隆过滤器预计数量、误判率
+     */
+    @Value("${oauth.revoke.expectedInsertions:100000}")
+    private int expectedInsertions;
+
+    @Value("${oauth.revoke.fpp:0.001}")
+    private double fpp;
+
+    /**
+     * 全量同步间隔(秒)
+     */
+    @Value("${oauth.revoke.syncInterval:300}")
+    private long syncInterval;
+
+    private final RedisUtil redisUtil;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("token-revocation-sync-%d").setDaemon(true).build());
+
+    private volatile Revoked revoked;
+
+    public TokenRevocationService(RedisUtil redisUtil, StringRedisTemplate stringRedisTemplate,
+                                  RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.redisUtil = redisUtil;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        revoked = new Revoked(BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, fpp));
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        redisMessageListenerContainer.addMessageListener((message, pattern) ->
+                onMessage(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+        sync();
+        executor.scheduleWithFixedDelay(this::sync, syncInterval, syncInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 吊销access token
+     *
+     * @param token access token
+     */
+    public void revoke(OAuth2AccessToken token) {
+        String jti = getJti(token);
+        if (jti == null) {
+            throw new BizException("token没有jti, 无法吊销");
+        }
+        Date expiration = token.getExpiration();
+        revoke(jti, expiration == null ? Long.MAX_VALUE : expiration.getTime());
+        Object rti = token.getAdditionalInformation().get(REFRESH_TOKEN_ID);
+        if (rti != null) {
+            Object rexp = token.getAdditionalInformation().get(REFRESH_EXPIRATION);
+            revoke(rti.toString(), rexp instanceof Number ? TimeUnit.SECONDS.toMillis(((Number) rexp).longValue()) : Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * 吊销
+     *
+     * @param jti       token id
+     * @param expiresAt token过期时间(毫秒)
+     */
+    public void revoke(String jti, long expiresAt) {
+        long remaining = expiresAt == Long.MAX_VALUE ? 0 : TimeUnit.MILLISECONDS.toSeconds(expiresAt - System.currentTimeMillis()) + 1;
+        if (expiresAt != Long.MAX_VALUE && remaining <= 0) {
+            return;
+        }
+        if (!redisUtil.set(KEY_PREFIX + jti, expiresAt, remaining)) {
+            throw new BizException("token吊销失败");
+        }
+        revoked.add(jti, expiresAt);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, jti + SEPARATOR + expiresAt);
+        } catch (Exception e) {
+            // 其他节点在下次全量同步时更新
+            log.error("token吊销广播失败, jti: {}", jti, e);
+        }
+    }
+
+    /**
+     * 是否已吊销(只查本地)
+     *
+     * @param token access token
+     * @return true-已吊销
+     */
+    public boolean isRevoked(OAuth2AccessToken token) {
+        Object rti = token.getAdditionalInformation().get(REFRESH_TOKEN_ID);
+        return isRevoked(getJti(token)) || (rti != null && isRevoked(rti.toString()));
+    }
+
+    /**
+     * 是否已吊销(只查本地)
+     *
+     * @param jti token id
+     * @return true-已吊销
+     */
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.contains(jti);
+    }
+
+    private void onMessage(String body) {
+        int index = body.lastIndexOf(SEPARATOR);
+        try {
+            revoked.add(body.substring(0, index), Long.parseLong(body.substring(index + 1)));
+        } catch (RuntimeException e) {
+            log.error("token吊销消息处理失败: {}", body, e);
+        }
+    }
+
+    /**
+     * SCAN全量同步, 重建布隆过滤器; 同步期间收到的广播同时写入新旧两份
+     */
+    private void sync() {
+        Revoked next = new Revoked(BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, fpp));
+        Revoked current = revoked;
+        current.next = next;
+        try (Stream<String> keys = redisUtil.scan(KEY_PREFIX + "*")) {
+            Iterators.partition(keys.iterator(), BATCH_SIZE).forEachRemaining(batch -> {
+                List<Object> values = redisUtil.mget(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    Object value = values.get(i);
+                    if (value instanceof Number) {
+                        next.add(batch.get(i).substring(KEY_PREFIX.length()), ((Number) value).longValue());
+                    }
+                }
+            });
+            // 本地吊销但redis中已没有的jti(同步期间写入)保留到过期
+            current.jtis.forEach(next::add);
+            next.removeExpired();
+            revoked = next;
+            if (next.jtis.size() > expectedInsertions) {
+                log.warn("已吊销的token数{}超过布隆过滤器预计数量{}, 误判率升高", next.jtis.size(), expectedInsertions);
+            }
+            log.debug("token吊销列表已同步, 数量: {}", next.jtis.size());
+        } catch (Exception e) {
+            current.next = null;
+            log.error("token吊销列表同步失败", e);
+        }
+    }
+
+    private static String getJti(OAuth2AccessToken token) {
+        Object jti = token.getAdditionalInformation().get(AccessTokenConverter.JTI);
+        return jti == null ? null : jti.toString();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 本地吊销列表
+     */
+    private static final class Revoked {
+
+        private final BloomFilter<String> bloomFilter;
+
+        /**
+         * jti -> 过期时间
+         */
+        private final Map<String, Long> jtis = new ConcurrentHashMap<>();
+
+        /**
+         * 同步中的下一份, 写入时同时写入
+         */
+        private volatile Revoked next;
+
+        private Revoked(BloomFilter<String> bloomFilter) {
+            this.bloomFilter = bloomFilter;
+        }
+
+        private void add(String jti, long expiresAt) {
+            jtis.put(jti, expiresAt);
+            bloomFilter.put(jti);
+            Revoked pending = next;
+            if (pending != null) {
+                pending.add(jti, expiresAt);
+            }
+        }
+
+        private boolean contains(String jti) {
+            return bloomFilter.mightContain(jti) && jtis.containsKey(jti);
+        }
+
+        private void removeExpired() {
+            long now = System.currentTimeMillis();
+            jtis.values().removeIf(expiresAt -> expiresAt <= now);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.yizhishang.oauth.token.key;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 公开验签公钥(JWKS), 资源服务通过 oauth.jwt.jwksUri 读取
+ *
+ * @author yizhishang
+ */
+@RestController
+@ConditionalOnExpression(SigningKeyRing.ENABLED)
+public class JwksEndpoint {
+
+    public static final String PATH = "/oauth/jwks";
+
+    private final SigningKeyRing signingKeyRing;
+
+    public JwksEndpoint(SigningKeyRing signingKeyRing) {
+        this.signingKeyRing = signingKeyRing;
+    }
+
+    @GetMapping(PATH)
+    public Map<String, Object> jwks() {
+        List<Map<String, Object>> keys = signingKeyRing.getKeys().stream().map(SigningKey::toJwk).collect(Collectors.toList());
+        return Collections.singletonMap("keys", keys);
+    }
+}
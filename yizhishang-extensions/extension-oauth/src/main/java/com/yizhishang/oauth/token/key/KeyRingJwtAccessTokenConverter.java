@@ -0,0 +1,123 @@
+package com.yizhishang.oauth.token.key;
+
+import com.yizhishang.oauth.token.TokenRevocationService;
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 使用 {@link SigningKeyRing} 签名的jwt转换器
+ * <pre>
+ * 1. 签名: 当前密钥签名, jwt头带kid; spring-security-jwt不支持ES256, 这里自行拼接 header.claims.signature
+ * 2. 验签: 按jwt头的kid从 {@link VerifierSource} 取验签器(已解析的公钥), 未知kid视为无效token
+ * 3. access token带refresh token链的id(rti)和过期时间(rexp), 供 {@link TokenRevocationService} 吊销整条链
+ * </pre>
+ *
+ * @author yizhishang
+ */
+public class KeyRingJwtAccessTokenConverter extends JwtAccessTokenConverter {
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final String KID = "kid";
+
+    private static final String EXP = "exp";
+
+    private final SigningKeyRing signingKeyRing;
+
+    private final VerifierSource verifierSource;
+
+    private final JsonParser jsonParser = JsonParserFactory.create();
+
+    /**
+     * @param signingKeyRing 签名密钥, 只验签的资源服务为null
+     * @param verifierSource 验签公钥, 可以是密钥环本身或远程JWKS
+     */
+    public KeyRingJwtAccessTokenConverter(SigningKeyRing signingKeyRing, VerifierSource verifierSource) {
+        this.signingKeyRing = signingKeyRing;
+        this.verifierSource = verifierSource;
+    }
+
+    @Override
+    public OAuth2AccessToken enhance(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        OAuth2RefreshToken refreshToken = accessToken.getRefreshToken();
+        if (refreshToken == null) {
+            return super.enhance(accessToken, authentication);
+        }
+        // 续期(重用refresh token)时refresh token已编码, jti不变; 首次签发时为uuid, 编码后即为jti
+        String rti = refreshToken.getValue();
+        try {
+            Object jti = jsonParser.parseMap(JwtHelper.decode(rti).getClaims()).get(AccessTokenConverter.JTI);
+            if (jti != null) {
+                rti = jti.toString();
+            }
+        } catch (IllegalArgumentException e) {
+            // 不是jwt
+        }
+        DefaultOAuth2AccessToken result = new DefaultOAuth2AccessToken(accessToken);
+        Map<String, Object> info = new LinkedHashMap<>(accessToken.getAdditionalInformation());
+        info.put(TokenRevocationService.REFRESH_TOKEN_ID, rti);
+        if (refreshToken instanceof ExpiringOAuth2RefreshToken && ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration() != null) {
+            info.put(TokenRevocationService.REFRESH_EXPIRATION, ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration().getTime() / 1000);
+        }
+        result.setAdditionalInformation(info);
+        return super.enhance(result, authentication);
+    }
+
+    @Override
+    protected String encode(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        if (signingKeyRing == null) {
+            throw new IllegalStateException("配置了 oauth.jwt.jwksUri 的资源服务不能签发token");
+        }
+        SigningKey key = signingKeyRing.getSigningKey();
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", key.getAlgorithm());
+        header.put("typ", "JWT");
+        header.put(KID, key.getKid());
+        String content = jsonParser.formatMap(getAccessTokenConverter().convertAccessToken(accessToken, authentication));
+        String signingInput = encodePart(jsonParser.formatMap(header)) + "." + encodePart(content);
+        return signingInput + "." + BASE64_URL.encodeToString(key.sign(signingInput.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Override
+    protected Map<String, Object> decode(String token) {
+        try {
+            String kid = JwtHelper.headers(token).get(KID);
+            SignatureVerifier verifier = kid == null ? null : verifierSource.getVerifier(kid);
+            if (verifier == null) {
+                throw new InvalidTokenException("未知的签名密钥: " + kid);
+            }
+            Jwt jwt = JwtHelper.decodeAndVerify(token, verifier);
+            Map<String, Object> claims = jsonParser.parseMap(jwt.getClaims());
+            Object exp = claims.get(EXP);
+            if (exp instanceof Integer) {
+                claims.put(EXP, Long.valueOf((Integer) exp));
+            }
+            getJwtClaimsSetVerifier().verify(claims);
+            return claims;
+        } catch (InvalidTokenException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidTokenException("Cannot convert access token to JSON", e);
+        }
+    }
+
+    private static String encodePart(String json) {
+        return BASE64_URL.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,145 @@
+package com.yizhishang.oauth.token.key;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 从授权服务的JWKS(oauth.jwt.jwksUri)读取验签公钥, 用于不共用redis密钥环的资源服务
+ * 公钥解析后缓存在本地, 每 refreshInterval 秒重新读取
+ * 遇到未知kid时直接拒绝, 同时在后台线程重新读取(同一时刻只有一次, 最多每5秒一次), 不阻塞请求线程
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("oauth.jwt.jwksUri")
+public class RemoteJwkSource implements VerifierSource, SmartInitializingSingleton {
+
+    private static final long MIN_RELOAD_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    @Value("${oauth.jwt.jwksUri}")
+    private String jwksUri;
+
+    @Value("${oauth.jwt.refreshInterval:60}")
+    private long refreshInterval;
+
+    /**
+     * 连接超时(毫秒)
+     */
+    @Value("${oauth.jwt.connectTimeout:2000}")
+    private int connectTimeout;
+
+    /**
+     * 读取超时(毫秒)
+     */
+    @Value("${oauth.jwt.readTimeout:3000}")
+    private int readTimeout;
+
+    private RestTemplate restTemplate;
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jwks-refresh-%d").setDaemon(true).build());
+
+    private volatile Map<String, SigningKey> keys = Collections.emptyMap();
+
+    private volatile long lastReload;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        restTemplate = new RestTemplate(requestFactory);
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("JWKS读取失败: {}", jwksUri, e);
+        }
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (Exception e) {
+                log.error("JWKS读取失败: {}", jwksUri, e);
+            }
+        }, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public SignatureVerifier getVerifier(String kid) {
+        SigningKey key = keys.get(kid);
+        if (key == null) {
+            reloadAsync();
+            return null;
+        }
+        return key.getVerifier();
+    }
+
+    /**
+     * 后台重新读取, 同一时刻只提交一次
+     */
+    private void reloadAsync() {
+        if (System.currentTimeMillis() - lastReload <= MIN_RELOAD_INTERVAL || !reloading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    reload();
+                } catch (Exception e) {
+                    log.error("JWKS读取失败: {}", jwksUri, e);
+                } finally {
+                    reloading.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            reloading.set(false);
+            log.warn("JWKS读取任务提交失败", e);
+        }
+    }
+
+    /**
+     * 重新读取JWKS, 已解析的公钥复用
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void reload() {
+        lastReload = System.currentTimeMillis();
+        Map<String, Object> jwks = restTemplate.getForObject(jwksUri, Map.class);
+        List<Map<String, Object>> jwkList = jwks == null ? null : (List<Map<String, Object>>) jwks.get("keys");
+        if (jwkList == null) {
+            throw new IllegalStateException("JWKS格式错误: " + jwksUri);
+        }
+        Map<String, SigningKey> current = keys;
+        Map<String, SigningKey> next = new HashMap<>(jwkList.size() * 2);
+        for (Map<String, Object> jwk : jwkList) {
+            String kid = (String) jwk.get("kid");
+            SigningKey key = current.get(kid);
+            try {
+                next.put(kid, key != null ? key : SigningKey.fromJwk(jwk));
+            } catch (Exception e) {
+                log.error("JWK[{}]解析失败", kid, e);
+            }
+        }
+        keys = Collections.unmodifiableMap(next);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,223 @@
+package com.yizhishang.oauth.token.key;
+
+import lombok.Getter;
+import org.springframework.security.jwt.crypto.sign.EllipticCurveVerifier;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+
+import java.math.BigInteger;
+import java.security.*;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.*;
+import java.util.*;
+
+/**
+ * jwt签名密钥, 支持 ES256(P-256) 和 RS256
+ * 公钥解析一次后保存验签器; 从JWKS读取的密钥没有私钥, 只能验签
+ *
+ * @author yizhishang
+ */
+@Getter
+public final class SigningKey {
+
+    public static final String ES256 = "ES256";
+
+    public static final String RS256 = "RS256";
+
+    private static final String CURVE = "P-256";
+
+    /**
+     * P-256坐标和签名中r、s的字节数
+     */
+    private static final int EC_SIZE = 32;
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+
+    private final String kid;
+
+    private final String algorithm;
+
+    /**
+     * 创建时间(毫秒)
+     */
+    private final long createdAt;
+
+    private final PublicKey publicKey;
+
+    private final PrivateKey privateKey;
+
+    private final SignatureVerifier verifier;
+
+    SigningKey(String kid, String algorithm, long createdAt, PublicKey publicKey, PrivateKey privateKey) {
+        this.kid = kid;
+        this.algorithm = algorithm;
+        this.createdAt = createdAt;
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+        this.verifier = ES256.equals(algorithm)
+                ? new EllipticCurveVerifier((ECPublicKey) publicKey, javaAlgorithm(algorithm))
+                : new RsaVerifier((RSAPublicKey) publicKey, javaAlgorithm(algorithm));
+    }
+
+    /**
+     * 生成新密钥
+     *
+     * @param algorithm ES256/RS256
+     * @return 密钥
+     */
+    static SigningKey generate(String algorithm) {
+        try {
+            KeyPairGenerator generator;
+            if (ES256.equals(algorithm)) {
+                generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            } else if (RS256.equals(algorithm)) {
+                generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+            } else {
+                throw new IllegalArgumentException("不支持的签名算法: " + algorithm);
+            }
+            KeyPair keyPair = generator.generateKeyPair();
+            return new SigningKey(UUID.randomUUID().toString().replace("-", ""), algorithm,
+                    System.currentTimeMillis(), keyPair.getPublic(), keyPair.getPrivate());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("生成签名密钥失败", e);
+        }
+    }
+
+    /**
+     * 由编码后的密钥恢复
+     *
+     * @param publicKey  X.509编码的公钥
+     * @param privateKey PKCS#8编码的私钥, 可为null
+     */
+    static SigningKey decode(String kid, String algorithm, long createdAt, byte[] publicKey, byte[] privateKey) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(ES256.equals(algorithm) ? "EC" : "RSA");
+            return new SigningKey(kid, algorithm, createdAt,
+                    keyFactory.generatePublic(new X509EncodedKeySpec(publicKey)),
+                    privateKey == null ? null : keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKey)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("签名密钥[" + kid + "]解析失败", e);
+        }
+    }
+
+    /**
+     * 由JWK恢复公钥
+     *
+     * @param jwk JWK
+     * @return 只能验签的密钥
+     */
+    static SigningKey fromJwk(Map<String, Object> jwk) {
+        String kid = (String) jwk.get("kid");
+        String kty = (String) jwk.get("kty");
+        try {
+            if ("EC".equals(kty)) {
+                if (!CURVE.equals(jwk.get("crv"))) {
+                    throw new IllegalArgumentException("不支持的曲线: " + jwk.get("crv"));
+                }
+                ECPoint point = new ECPoint(unsigned((String) jwk.get("x")), unsigned((String) jwk.get("y")));
+                PublicKey publicKey = KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, curveParameters()));
+                return new SigningKey(kid, ES256, 0, publicKey, null);
+            }
+            if ("RSA".equals(kty)) {
+                RSAPublicKeySpec spec = new RSAPublicKeySpec(unsigned((String) jwk.get("n")), unsigned((String) jwk.get("e")));
+                return new SigningKey(kid, RS256, 0, KeyFactory.getInstance("RSA").generatePublic(spec), null);
+            }
+            throw new IllegalArgumentException("不支持的密钥类型: " + kty);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("JWK[" + kid + "]解析失败", e);
+        }
+    }
+
+    /**
+     * 公钥的JWK表示
+     *
+     * @return JWK
+     */
+    public Map<String, Object> toJwk() {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithm);
+        if (publicKey instanceof ECPublicKey) {
+            ECPoint point = ((ECPublicKey) publicKey).getW();
+            jwk.put("kty", "EC");
+            jwk.put("crv", CURVE);
+            jwk.put("x", BASE64_URL.encodeToString(toFixedLength(point.getAffineX(), EC_SIZE)));
+            jwk.put("y", BASE64_URL.encodeToString(toFixedLength(point.getAffineY(), EC_SIZE)));
+        } else {
+            RSAPublicKey rsaPublicKey = (RSAPublicKey) publicKey;
+            jwk.put("kty", "RSA");
+            jwk.put("n", BASE64_URL.encodeToString(toUnsigned(rsaPublicKey.getModulus())));
+            jwk.put("e", BASE64_URL.encodeToString(toUnsigned(rsaPublicKey.getPublicExponent())));
+        }
+        return jwk;
+    }
+
+    /**
+     * 签名, ES256输出JWS格式(r || s)
+     *
+     * @param content 签名内容
+     * @return 签名
+     */
+    public byte[] sign(byte[] content) {
+        if (privateKey == null) {
+            throw new IllegalStateException("签名密钥[" + kid + "]没有私钥");
+        }
+        try {
+            Signature signature = Signature.getInstance(javaAlgorithm(algorithm));
+            signature.initSign(privateKey);
+            signature.update(content);
+            byte[] signed = signature.sign();
+            return ES256.equals(algorithm) ? derToJws(signed) : signed;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("签名失败", e);
+        }
+    }
+
+    private static String javaAlgorithm(String algorithm) {
+        return ES256.equals(algorithm) ? "SHA256withECDSA" : "SHA256withRSA";
+    }
+
+    private static ECParameterSpec curveParameters() throws GeneralSecurityException {
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        return parameters.getParameterSpec(ECParameterSpec.class);
+    }
+
+    /**
+     * DER编码的ECDSA签名 SEQUENCE { INTEGER r, INTEGER s } 转为 r || s
+     */
+    private static byte[] derToJws(byte[] der) {
+        int offset = der[1] == (byte) 0x81 ? 3 : 2;
+        int rLength = der[offset + 1];
+        BigInteger r = new BigInteger(1, Arrays.copyOfRange(der, offset + 2, offset + 2 + rLength));
+        offset = offset + 2 + rLength;
+        int sLength = der[offset + 1];
+        BigInteger s = new BigInteger(1, Arrays.copyOfRange(der, offset + 2, offset + 2 + sLength));
+        byte[] jws = new byte[EC_SIZE * 2];
+        System.arraycopy(toFixedLength(r, EC_SIZE), 0, jws, 0, EC_SIZE);
+        System.arraycopy(toFixedLength(s, EC_SIZE), 0, jws, EC_SIZE, EC_SIZE);
+        return jws;
+    }
+
+    private static byte[] toFixedLength(BigInteger value, int length) {
+        byte[] bytes = toUnsigned(value);
+        byte[] fixed = new byte[length];
+        System.arraycopy(bytes, 0, fixed, length - bytes.length, bytes.length);
+        return fixed;
+    }
+
+    private static byte[] toUnsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 && bytes.length > 1 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    private static BigInteger unsigned(String base64Url) {
+        return new BigInteger(1, BASE64_URL_DECODER.decode(base64Url));
+    }
+}
@@ -0,0 +1,323 @@
+package com.yizhishang.oauth.token.key;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.redis.lock.RedisLock;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * jwt签名密钥环
+ * <pre>
+ * 1. 密钥保存在redis hash oauth:jwt:keys(kid -> 密钥), 所有节点共用; 私钥用 oauth.jwt.keyPassword 加密(AES-GCM, 每个密钥独立salt)
+ * 2. 最新的密钥用于签名, jwt头带kid; 未过期的密钥都可验签(解析后的公钥缓存在本地)
+ * 3. 最新密钥超过 rotationInterval 天时生成新密钥(redis锁保证只有一个节点生成), 旧密钥再保留 keyRetention 天(不小于token有效期)
+ * 4. 每 refreshInterval 秒重新读取; 遇到未知kid时立即读取(最多每5秒一次)
+ * 只在授权服务启用; 配置了 oauth.jwt.jwksUri 的资源服务不加载私钥, 只通过 {@link RemoteJwkSource} 读取公钥
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression(SigningKeyRing.ENABLED)
+public class SigningKeyRing implements VerifierSource, SmartInitializingSingleton {
+
+    /**
+     * 没有配置 oauth.jwt.jwksUri 时为授权服务
+     */
+    public static final String ENABLED = "'${oauth.jwt.jwksUri:}'.isEmpty()";
+
+    private static final String KEYS_KEY = "oauth:jwt:keys";
+
+    private static final String LOCK_KEY = "oauth:jwt:rotate";
+
+    private static final int LOCK_EXPIRE = 60;
+
+    private static final long MIN_RELOAD_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    private static final int WAIT_TIMES = 10;
+
+    /**
+     * 签名算法: ES256、RS256
+     */
+    @Value("${oauth.jwt.algorithm:ES256}")
+    private String algorithm;
+
+    /**
+     * 密钥轮换间隔(天)
+     */
+    @Value("${oauth.jwt.rotationInterval:7}")
+    private long rotationInterval;
+
+    /**
+     * 轮换后旧密钥保留天数, 不小于access token有效期
+     */
+    @Value("${oauth.jwt.keyRetention:31}")
+    private long keyRetention;
+
+    /**
+     * 重新读取间隔(秒)
+     */
+    @Value("${oauth.jwt.refreshInterval:60}")
+    private long refreshInterval;
+
+    /**
+     * 私钥加密口令, 所有授权服务节点一致
+     */
+    @Value("${oauth.jwt.keyPassword}")
+    private String keyPassword;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisLock redisLock;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jwt-key-refresh-%d").setDaemon(true).build());
+
+    private volatile Keys keys = new Keys(null, Collections.emptyMap());
+
+    private volatile long lastReload;
+
+    public SigningKeyRing(StringRedisTemplate stringRedisTemplate, RedisLock redisLock) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisLock = redisLock;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+        rotateIfNeeded();
+        // 其他节点正在生成第一个密钥
+        for (int i = 0; i < WAIT_TIMES && keys.signingKey == null; i++) {
+            sleep();
+            reload();
+        }
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+                rotateIfNeeded();
+            } catch (Exception e) {
+                log.error("jwt签名密钥刷新失败", e);
+            }
+        }, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 当前签名密钥
+     *
+     * @return 密钥
+     */
+    public SigningKey getSigningKey() {
+        SigningKey signingKey = keys.signingKey;
+        if (signingKey == null) {
+            throw new IllegalStateException("没有可用的jwt签名密钥");
+        }
+        return signingKey;
+    }
+
+    /**
+     * 所有未过期的密钥(JWKS)
+     *
+     * @return 密钥
+     */
+    public Collection<SigningKey> getKeys() {
+        return keys.all.values();
+    }
+
+    @Override
+    public SignatureVerifier getVerifier(String kid) {
+        SigningKey key = keys.all.get(kid);
+        if (key == null && System.currentTimeMillis() - lastReload > MIN_RELOAD_INTERVAL) {
+            reload();
+            key = keys.all.get(kid);
+        }
+        return key == null ? null : key.getVerifier();
+    }
+
+    /**
+     * 从redis读取密钥, 已解析的密钥复用
+     */
+    public synchronized void reload() {
+        lastReload = System.currentTimeMillis();
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(KEYS_KEY);
+        Map<String, SigningKey> current = keys.all;
+        Map<String, SigningKey> all = new HashMap<>(entries.size() * 2);
+        long expiredBefore = expiredBefore();
+        entries.forEach((kid, json) -> {
+            SigningKey key = current.get(kid.toString());
+            try {
+                if (key == null) {
+                    key = objectMapper.readValue(json.toString(), StoredKey.class).decode(keyPassword);
+                }
+                if (key.getCreatedAt() > expiredBefore) {
+                    all.put(key.getKid(), key);
+                }
+            } catch (Exception e) {
+                log.error("jwt签名密钥[{}]解析失败", kid, e);
+            }
+        });
+        SigningKey signingKey = all.values().stream().max(Comparator.comparingLong(SigningKey::getCreatedAt)).orElse(null);
+        keys = new Keys(signingKey, all);
+    }
+
+    /**
+     * 立即生成新的签名密钥
+     */
+    public void rotate() {
+        rotate(true);
+    }
+
+    private void rotateIfNeeded() {
+        if (needRotate()) {
+            rotate(false);
+        }
+    }
+
+    private void rotate(boolean force) {
+        if (!redisLock.tryLock(LOCK_KEY, LOCK_EXPIRE)) {
+            return;
+        }
+        try {
+            reload();
+            if (!force && !needRotate()) {
+                return;
+            }
+            SigningKey key = SigningKey.generate(algorithm);
+            stringRedisTemplate.opsForHash().put(KEYS_KEY, key.getKid(), objectMapper.writeValueAsString(StoredKey.of(key, keyPassword)));
+            removeExpired();
+            reload();
+            log.info("jwt签名密钥已轮换, kid: {}, 算法: {}", key.getKid(), algorithm);
+        } catch (IOException e) {
+            throw new IllegalStateException("jwt签名密钥保存失败", e);
+        } finally {
+            releaseLock();
+        }
+    }
+
+    /**
+     * 释放轮换锁, 失败时只记录日志, 锁到期后自动释放
+     */
+    private void releaseLock() {
+        try {
+            redisLock.releaseLock(LOCK_KEY);
+        } catch (RuntimeException e) {
+            log.warn("jwt签名密钥轮换锁释放失败, 等待锁过期", e);
+        }
+    }
+
+    private boolean needRotate() {
+        SigningKey signingKey = keys.signingKey;
+        return signingKey == null
+                || !signingKey.getAlgorithm().equals(algorithm)
+                || signingKey.getCreatedAt() + TimeUnit.DAYS.toMillis(rotationInterval) <= System.currentTimeMillis();
+    }
+
+    private void removeExpired() throws IOException {
+        long expiredBefore = expiredBefore();
+        for (Map.Entry<Object, Object> entry : stringRedisTemplate.opsForHash().entries(KEYS_KEY).entrySet()) {
+            if (objectMapper.readValue(entry.getValue().toString(), StoredKey.class).getCreatedAt() <= expiredBefore) {
+                stringRedisTemplate.opsForHash().delete(KEYS_KEY, entry.getKey());
+                log.info("jwt签名密钥已过期, kid: {}", entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 早于该时间创建的密钥已过期: 轮换间隔 + 保留天数
+     */
+    private long expiredBefore() {
+        return System.currentTimeMillis() - TimeUnit.DAYS.toMillis(rotationInterval + keyRetention);
+    }
+
+    private static void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static final class Keys {
+
+        private final SigningKey signingKey;
+
+        private final Map<String, SigningKey> all;
+
+        private Keys(SigningKey signingKey, Map<String, SigningKey> all) {
+            this.signingKey = signingKey;
+            this.all = Collections.unmodifiableMap(all);
+        }
+    }
+
+    /**
+     * redis中保存的密钥
+     */
+    @Data
+    static class StoredKey {
+
+        private String kid;
+
+        private String algorithm;
+
+        private long createdAt;
+
+        /**
+         * X.509编码的公钥(base64)
+         */
+        private String publicKey;
+
+        /**
+         * 加密私钥用的salt(hex)
+         */
+        private String salt;
+
+        /**
+         * 加密后的PKCS#8编码私钥(base64)
+         */
+        private String privateKey;
+
+        static StoredKey of(SigningKey key, String password) {
+            StoredKey stored = new StoredKey();
+            stored.setKid(key.getKid());
+            stored.setAlgorithm(key.getAlgorithm());
+            stored.setCreatedAt(key.getCreatedAt());
+            stored.setPublicKey(Base64.getEncoder().encodeToString(key.getPublicKey().getEncoded()));
+            stored.setSalt(KeyGenerators.string().generateKey());
+            stored.setPrivateKey(Base64.getEncoder().encodeToString(stored.encryptor(password).encrypt(key.getPrivateKey().getEncoded())));
+            return stored;
+        }
+
+        SigningKey decode(String password) {
+            return SigningKey.decode(kid, algorithm, createdAt,
+                    Base64.getDecoder().decode(publicKey), encryptor(password).decrypt(Base64.getDecoder().decode(privateKey)));
+        }
+
+        private BytesEncryptor encryptor(String password) {
+            return Encryptors.stronger(password, salt);
+        }
+    }
+}
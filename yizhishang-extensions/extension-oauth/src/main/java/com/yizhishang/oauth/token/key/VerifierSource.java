@@ -0,0 +1,19 @@
+package com.yizhishang.oauth.token.key;
+
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+
+/**
+ * 按jwt头中的kid获取验签器
+ *
+ * @author yizhishang
+ */
+public interface VerifierSource {
+
+    /**
+     * 验签器
+     *
+     * @param kid 密钥id
+     * @return 验签器, 密钥不存在时为null
+     */
+    SignatureVerifier getVerifier(String kid);
+}
@@ -0,0 +1,149 @@
+package com.yizhishang.oauth.user;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yizhishang.oauth.CustomUserDetail;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户信息(含角色)本地缓存, 登录时不访问数据库/redis
+ * <pre>
+ * 1. 缓存 {@link CustomUserDetail}, 最长 cacheTtl 秒(兜底, 防止漏收失效消息); 读取时返回副本
+ * 2. 用户或密码变化时(事务提交后)调用 evict, 角色或用户角色变化时调用 evictAll; 通过pub/sub广播, 各节点清除
+ * 不存在的用户不缓存
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class UserDetailsCache implements SmartInitializingSingleton {
+
+    private static final String CHANNEL = "oauth:user:channel";
+
+    /**
+     * 清除全部
+     */
+    private static final String ALL = "*";
+
+    @Value("${oauth.user.cacheSize:10000}")
+    private long cacheSize;
+
+    /**
+     * 最长缓存时间(秒)
+     */
+    @Value("${oauth.user.cacheTtl:300}")
+    private long cacheTtl;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private Cache<String, CustomUserDetail> cache;
+
+    public UserDetailsCache(StringRedisTemplate stringRedisTemplate, RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder().maximumSize(cacheSize).expireAfterWrite(cacheTtl, TimeUnit.SECONDS).build();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        redisMessageListenerContainer.addMessageListener((message, pattern) ->
+                invalidate(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * 读取本地缓存
+     *
+     * @param username 用户名
+     * @return 副本, 没有时为null
+     */
+    public CustomUserDetail get(String username) {
+        CustomUserDetail userDetail = cache.getIfPresent(username);
+        return userDetail == null ? null : userDetail.copy();
+    }
+
+    /**
+     * 批量读取本地缓存
+     *
+     * @param usernames 用户名
+     * @return 用户名 -> 副本, 不含没有缓存的用户
+     */
+    public Map<String, CustomUserDetail> getAll(Collection<String> usernames) {
+        Map<String, CustomUserDetail> present = cache.getAllPresent(usernames);
+        Map<String, CustomUserDetail> result = new HashMap<>(present.size() * 2);
+        present.forEach((username, userDetail) -> result.put(username, userDetail.copy()));
+        return result;
+    }
+
+    public void put(CustomUserDetail userDetail) {
+        cache.put(userDetail.getUsername(), userDetail.copy());
+    }
+
+    /**
+     * 用户信息变化, 在事务中调用时提交后清除
+     *
+     * @param username 用户名
+     */
+    public void evict(String username) {
+        publishAfterCommit(username);
+    }
+
+    /**
+     * 角色变化, 清除全部
+     */
+    public void evictAll() {
+        publishAfterCommit(ALL);
+    }
+
+    private void publishAfterCommit(String body) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(body);
+                }
+            });
+        } else {
+            publish(body);
+        }
+    }
+
+    private void publish(String body) {
+        invalidate(body);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, body);
+        } catch (Exception e) {
+            // 其他节点最多 cacheTtl 秒后重新加载
+            log.error("用户缓存失效通知失败: {}", body, e);
+        }
+    }
+
+    private void invalidate(String body) {
+        if (ALL.equals(body)) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(body);
+        }
+    }
+}
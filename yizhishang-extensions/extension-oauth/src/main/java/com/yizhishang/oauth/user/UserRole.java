@@ -0,0 +1,22 @@
+package com.yizhishang.oauth.user;
+
+import lombok.Data;
+
+/**
+ * 用户与角色的关联(um_user + um_role_user + um_role 联表查询结果)
+ *
+ * @author yizhishang
+ */
+@Data
+public class UserRole {
+
+    private Long userId;
+
+    private String account;
+
+    private String password;
+
+    private Long roleId;
+
+    private String role;
+}
@@ -0,0 +1,66 @@
+package com.yizhishang.oauth.user.bloom;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.yizhishang.oauth.user.entity.UmUser;
+import com.yizhishang.oauth.user.mapper.UmUserMapper;
+import com.yizhishang.redis.bloom.BloomFilterProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 用户账号布隆过滤器, 拦截不存在账号的查询
+ *
+ * @author yizhishang
+ */
+@Component
+public class UmUserBloomFilterProvider implements BloomFilterProvider {
+
+    public static final String NAME = "UmUser:account";
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Value("${oauth.bloom.user.expectedInsertions:1000000}")
+    private long expectedInsertions;
+
+    private final UmUserMapper umUserMapper;
+
+    public UmUserBloomFilterProvider(UmUserMapper umUserMapper) {
+        this.umUserMapper = umUserMapper;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public long expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * 按id分批读取账号
+     */
+    @Override
+    public void load(Consumer<Collection<String>> sink) {
+        long lastId = 0L;
+        List<UmUser> users;
+        do {
+            users = umUserMapper.selectList(new LambdaQueryWrapper<UmUser>()
+                    .select(UmUser::getId, UmUser::getAccount)
+                    .gt(UmUser::getId, lastId)
+                    .orderByAsc(UmUser::getId)
+                    .last("limit " + BATCH_SIZE));
+            if (users.isEmpty()) {
+                break;
+            }
+            sink.accept(users.stream().map(UmUser::getAccount).collect(Collectors.toList()));
+            lastId = users.get(users.size() - 1).getId();
+        } while (users.size() == BATCH_SIZE);
+    }
+}
@@ -0,0 +1,45 @@
+package com.yizhishang.oauth.user.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.yizhishang.core.mybatis.domain.BaseEntity;
+import io.swagger.annotations.ApiModel;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 资源(url)信息实体类
+ *
+ * @author yizhishang
+ */
+@Data
+@TableName("um_resource")
+@ApiModel(value = "UmResource对象", description = "资源信息")
+public class UmResource extends BaseEntity implements Serializable {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    @TableField(value = "name")
+    private String name;
+
+    /**
+     * Ant风格路径, 如 /admin/**
+     */
+    @TableField(value = "url")
+    private String url;
+
+    /**
+     * 请求方法, 为空时匹配所有方法
+     */
+    @TableField(value = "method")
+    private String method;
+
+    @TableField(value = "description")
+    private String description;
+
+
+}
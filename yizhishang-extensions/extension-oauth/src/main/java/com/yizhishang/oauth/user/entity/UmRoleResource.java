@@ -0,0 +1,28 @@
+package com.yizhishang.oauth.user.entity;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.yizhishang.core.mybatis.domain.BaseEntity;
+import io.swagger.annotations.ApiModel;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 角色资源关系实体类
+ *
+ * @author yizhishang
+ */
+@Data
+@TableName("um_role_resource")
+@ApiModel(value = "UmRoleResource对象", description = "角色资源关系")
+public class UmRoleResource extends BaseEntity implements Serializable {
+
+    @TableField(value = "role_id")
+    private Long roleId;
+
+    @TableField(value = "resource_id")
+    private Long resourceId;
+
+
+}
@@ -0,0 +1,29 @@
+package com.yizhishang.oauth.user.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yizhishang.oauth.permission.ResourcePermission;
+import com.yizhishang.oauth.user.entity.UmResource;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 资源信息 Mapper 接口
+ *
+ * @author yizhishang
+ */
+@Mapper
+@Repository
+public interface UmResourceMapper extends BaseMapper<UmResource> {
+
+    /**
+     * 资源及其所需角色(一次联表查询), 没有角色的资源也返回一行(role为null)
+     *
+     * @param resourceIds 资源id, 为空时查询全部
+     * @return 资源角色
+     */
+    List<ResourcePermission> selectPermissions(@Param("resourceIds") Collection<Long> resourceIds);
+}
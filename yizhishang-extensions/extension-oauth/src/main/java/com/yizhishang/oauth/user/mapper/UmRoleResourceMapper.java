@@ -0,0 +1,17 @@
+package com.yizhishang.oauth.user.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yizhishang.oauth.user.entity.UmRoleResource;
+import org.apache.ibatis.annotations.Mapper;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 角色资源关系 Mapper 接口
+ *
+ * @author yizhishang
+ */
+@Mapper
+@Repository
+public interface UmRoleResourceMapper extends BaseMapper<UmRoleResource> {
+
+}
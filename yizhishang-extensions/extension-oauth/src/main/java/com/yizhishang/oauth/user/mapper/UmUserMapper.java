@@ -1,10 +1,15 @@
 package com.yizhishang.oauth.user.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.yizhishang.oauth.user.UserRole;
 import com.yizhishang.oauth.user.entity.UmUser;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  *  Mapper 接口
  *
@@ -15,4 +20,11 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface UmUserMapper extends BaseMapper<UmUser> {
 
+    /**
+     * 用户及其角色(一次联表查询), 没有角色的用户也返回一行(role为null)
+     *
+     * @param accounts 账号, 不能为空
+     * @return 用户角色
+     */
+    List<UserRole> selectUserRoles(@Param("accounts") Collection<String> accounts);
 }
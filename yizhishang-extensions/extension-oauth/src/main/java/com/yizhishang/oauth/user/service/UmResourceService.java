@@ -0,0 +1,19 @@
+package com.yizhishang.oauth.user.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.yizhishang.oauth.user.entity.UmResource;
+
+/**
+ * 资源信息 服务类
+ *
+ * @author yizhishang
+ */
+public interface UmResourceService extends IService<UmResource> {
+
+    UmResource insert(UmResource umResource);
+
+    UmResource modify(UmResource umResource);
+
+    void delete(Long Id);
+
+}
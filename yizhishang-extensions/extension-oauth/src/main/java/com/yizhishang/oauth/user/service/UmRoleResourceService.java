@@ -0,0 +1,17 @@
+package com.yizhishang.oauth.user.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.yizhishang.oauth.user.entity.UmRoleResource;
+
+/**
+ * 角色资源关系 服务类
+ *
+ * @author yizhishang
+ */
+public interface UmRoleResourceService extends IService<UmRoleResource> {
+
+    UmRoleResource insert(UmRoleResource umRoleResource);
+
+    void delete(Long Id);
+
+}
@@ -17,6 +17,8 @@ public interface UmUserService extends IService<UmUser> {
 
     UmUser modify(UmUser umUser);
 
+    void updatePassword(String account, String password);
+
     void delete(Long Id);
 
 }
@@ -0,0 +1,57 @@
+package com.yizhishang.oauth.user.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yizhishang.common.exception.BizException;
+import com.yizhishang.oauth.permission.ResourcePermissionRegistry;
+import com.yizhishang.oauth.user.entity.UmResource;
+import com.yizhishang.oauth.user.mapper.UmResourceMapper;
+import com.yizhishang.oauth.user.service.UmResourceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+
+/**
+ * 资源信息 服务实现类
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Service
+public class UmResourceServiceImpl extends ServiceImpl<UmResourceMapper, UmResource> implements UmResourceService {
+
+    @Autowired
+    private ResourcePermissionRegistry resourcePermissionRegistry;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public UmResource insert(UmResource umResource) {
+        if (!this.save(umResource)) {
+            throw new BizException("插入资源信息失败");
+        }
+        resourcePermissionRegistry.changed(Collections.singletonList(umResource.getId()));
+        return umResource;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public UmResource modify(UmResource umResource) {
+        if (!this.updateById(umResource)) {
+            throw new BizException("更新资源信息失败");
+        }
+        resourcePermissionRegistry.changed(Collections.singletonList(umResource.getId()));
+        return umResource;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void delete(Long umResourceId) {
+        if (!this.removeById(umResourceId)) {
+            throw new BizException("删除资源信息失败");
+        }
+        resourcePermissionRegistry.changed(Collections.singletonList(umResourceId));
+    }
+
+}
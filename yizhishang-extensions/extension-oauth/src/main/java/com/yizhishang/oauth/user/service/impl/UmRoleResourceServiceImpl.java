@@ -0,0 +1,48 @@
+package com.yizhishang.oauth.user.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.yizhishang.common.exception.BizException;
+import com.yizhishang.oauth.permission.ResourcePermissionRegistry;
+import com.yizhishang.oauth.user.entity.UmRoleResource;
+import com.yizhishang.oauth.user.mapper.UmRoleResourceMapper;
+import com.yizhishang.oauth.user.service.UmRoleResourceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+
+/**
+ * 角色资源关系 服务实现类
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Service
+public class UmRoleResourceServiceImpl extends ServiceImpl<UmRoleResourceMapper, UmRoleResource> implements UmRoleResourceService {
+
+    @Autowired
+    private ResourcePermissionRegistry resourcePermissionRegistry;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public UmRoleResource insert(UmRoleResource umRoleResource) {
+        if (!this.save(umRoleResource)) {
+            throw new BizException("插入角色资源关系失败");
+        }
+        resourcePermissionRegistry.changed(Collections.singletonList(umRoleResource.getResourceId()));
+        return umRoleResource;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void delete(Long umRoleResourceId) {
+        UmRoleResource umRoleResource = this.getById(umRoleResourceId);
+        if (umRoleResource == null || !this.removeById(umRoleResourceId)) {
+            throw new BizException("删除角色资源关系失败");
+        }
+        resourcePermissionRegistry.changed(Collections.singletonList(umRoleResource.getResourceId()));
+    }
+
+}
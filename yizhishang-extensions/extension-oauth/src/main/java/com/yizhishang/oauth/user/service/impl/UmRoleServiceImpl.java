@@ -2,6 +2,8 @@ package com.yizhishang.oauth.user.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.yizhishang.common.exception.BizException;
+import com.yizhishang.oauth.permission.ResourcePermissionRegistry;
+import com.yizhishang.oauth.user.UserDetailsCache;
 import com.yizhishang.oauth.user.entity.UmRole;
 import com.yizhishang.oauth.user.mapper.UmRoleMapper;
 import com.yizhishang.oauth.user.service.UmRoleService;
@@ -11,6 +13,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+
 /**
  * 角色信息 服务实现类
  *
@@ -24,6 +28,12 @@ public class UmRoleServiceImpl extends ServiceImpl<UmRoleMapper, UmRole> impleme
     @Autowired
     private UmRoleMapper umRoleMapper;
 
+    @Autowired
+    private ResourcePermissionRegistry resourcePermissionRegistry;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public UmRole insert(UmRole umRole) {
@@ -40,6 +50,9 @@ public class UmRoleServiceImpl extends ServiceImpl<UmRoleMapper, UmRole> impleme
         if (!this.updateById(umRole)) {
             throw new BizException("更新角色信息失败");
         }
+        // 角色编码可能变化, 重新加载全部资源权限
+        resourcePermissionRegistry.changed(Collections.emptyList());
+        userDetailsCache.evictAll();
         return umRole;
     }
 
@@ -49,6 +62,8 @@ public class UmRoleServiceImpl extends ServiceImpl<UmRoleMapper, UmRole> impleme
         if (!this.removeById(umRoleId)) {
             throw new BizException("删除角色信息失败");
         }
+        resourcePermissionRegistry.changed(Collections.emptyList());
+        userDetailsCache.evictAll();
     }
 
 }
\ No newline at end of file
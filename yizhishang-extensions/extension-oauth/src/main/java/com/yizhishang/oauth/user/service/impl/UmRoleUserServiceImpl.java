@@ -2,6 +2,7 @@ package com.yizhishang.oauth.user.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.yizhishang.common.exception.BizException;
+import com.yizhishang.oauth.user.UserDetailsCache;
 import com.yizhishang.oauth.user.entity.UmRoleUser;
 import com.yizhishang.oauth.user.mapper.UmRoleUserMapper;
 import com.yizhishang.oauth.user.service.UmRoleUserService;
@@ -24,12 +25,19 @@ public class UmRoleUserServiceImpl extends ServiceImpl<UmRoleUserMapper, UmRoleU
     @Autowired
     private UmRoleUserMapper umRoleUserMapper;
 
+    /**
+     * 用户角色只有user_id, 变化时清除全部用户缓存
+     */
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public UmRoleUser insert(UmRoleUser umRoleUser) {
         if (!this.save(umRoleUser)) {
             throw new BizException("插入失败");
         }
+        userDetailsCache.evictAll();
         return umRoleUser;
     }
 
@@ -40,6 +48,7 @@ public class UmRoleUserServiceImpl extends ServiceImpl<UmRoleUserMapper, UmRoleU
         if (!this.updateById(umRoleUser)) {
             throw new BizException("更新失败");
         }
+        userDetailsCache.evictAll();
         return umRoleUser;
     }
 
@@ -49,6 +58,7 @@ public class UmRoleUserServiceImpl extends ServiceImpl<UmRoleUserMapper, UmRoleU
         if (!this.removeById(umRoleUserId)) {
             throw new BizException("删除失败");
         }
+        userDetailsCache.evictAll();
     }
 
 }
\ No newline at end of file
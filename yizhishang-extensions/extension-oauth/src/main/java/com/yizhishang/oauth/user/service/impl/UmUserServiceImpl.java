@@ -1,11 +1,15 @@
 package com.yizhishang.oauth.user.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.yizhishang.common.exception.BizException;
+import com.yizhishang.oauth.user.UserDetailsCache;
+import com.yizhishang.oauth.user.bloom.UmUserBloomFilterProvider;
 import com.yizhishang.oauth.user.entity.UmUser;
 import com.yizhishang.oauth.user.mapper.UmUserMapper;
 import com.yizhishang.oauth.user.service.UmUserService;
+import com.yizhishang.redis.bloom.BloomFilterRegistry;
 import com.yizhishang.redis.cache.annotation.RedisCache;
 import com.yizhishang.redis.cache.annotation.RedisEvict;
 import lombok.extern.slf4j.Slf4j;
@@ -26,8 +30,14 @@ public class UmUserServiceImpl extends ServiceImpl<UmUserMapper, UmUser> impleme
     @Autowired
     private UmUserMapper umUserMapper;
 
+    @Autowired
+    private BloomFilterRegistry bloomFilterRegistry;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
     @Override
-    @RedisCache(key = "UmUser:query:#username")
+    @RedisCache(key = "UmUser:query:#username", bloom = UmUserBloomFilterProvider.NAME)
     public UmUser query(String username) {
         return umUserMapper.selectOne(new LambdaQueryWrapper<UmUser>().eq(UmUser::getAccount, username));
     }
@@ -38,6 +48,7 @@ public class UmUserServiceImpl extends ServiceImpl<UmUserMapper, UmUser> impleme
         if (!this.save(umUser)) {
             throw new BizException("插入失败");
         }
+        bloomFilterRegistry.put(UmUserBloomFilterProvider.NAME, umUser.getAccount());
         return umUser;
     }
 
@@ -45,18 +56,38 @@ public class UmUserServiceImpl extends ServiceImpl<UmUserMapper, UmUser> impleme
     @RedisEvict(keys = "UmUser:query:#umUser.id")
     @Transactional(rollbackFor = Exception.class)
     public UmUser modify(UmUser umUser) {
-        if (!this.updateById(umUser)) {
+        UmUser stored = getById(umUser.getId());
+        if (stored == null || !this.updateById(umUser)) {
             throw new BizException("更新失败");
         }
+        // 账号可能变化, 新账号加入布隆过滤器
+        if (umUser.getAccount() != null) {
+            bloomFilterRegistry.put(UmUserBloomFilterProvider.NAME, umUser.getAccount());
+        }
+        // 改名后旧账号的缓存也要清除
+        userDetailsCache.evict(stored.getAccount());
+        if (umUser.getAccount() != null && !umUser.getAccount().equals(stored.getAccount())) {
+            userDetailsCache.evict(umUser.getAccount());
+        }
         return umUser;
     }
 
+    @Override
+    @RedisEvict(keys = "UmUser:query:#account")
+    @Transactional(rollbackFor = Exception.class)
+    public void updatePassword(String account, String password) {
+        if (!this.update(new LambdaUpdateWrapper<UmUser>().set(UmUser::getPassword, password).eq(UmUser::getAccount, account))) {
+            throw new BizException("更新失败");
+        }
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void delete(Long umUserId) {
         if (!this.removeById(umUserId)) {
             throw new BizException("删除失败");
         }
+        userDetailsCache.evictAll();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.yizhishang.oauth.matcher;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link UrlPatternMatcher} 与 {@link AntPathMatcher} 结果一致性测试
+ *
+ * @author yizhishang
+ */
+class UrlPatternMatcherTest {
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/", "/a", "/a/", "/a/b", "/A/b",
+            "/a/*", "/a/*/c", "/a/*/", "/*", "/*/b",
+            "/a/**", "/a/**/c", "/**/c", "/**", "/a/**/b/**",
+            "/a/{id}", "/a/{id}/c", "/a/*.js", "/a/b?", "/a/**/*.js",
+            "a/b", "a/*", "*.js");
+
+    private static final List<String> PATHS = Arrays.asList(
+            "/", "", "/a", "/a/", "/A", "/a/b", "/a/b/", "/A/b", "/a/bc", "/a/b/c", "/a/b/c/", "/a/x/c",
+            "/a/b/x/c", "/a/b/b/c", "/c", "/x/c", "/x/y/c", "/b", "/x/b", "/ab", "/a//b",
+            "/a/1", "/a/1/c", "/a/app.js", "/a/b/app.js", "/a/b/b/x", "/a/bb",
+            "a/b", "a/x", "app.js", "/app.js");
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    void singlePatternMatchesLikeAntPathMatcher() {
+        for (String pattern : PATTERNS) {
+            UrlPatternMatcher<String> matcher = UrlPatternMatcher.<String>builder().add(pattern, pattern).build();
+            for (String path : PATHS) {
+                assertEquals(antPathMatcher.match(pattern, path), matcher.matches("GET", path),
+                        "pattern: " + pattern + ", path: " + path);
+            }
+        }
+    }
+
+    @Test
+    void allPatternsMatchLikeAntPathMatcher() {
+        UrlPatternMatcher.Builder<String> builder = UrlPatternMatcher.builder();
+        PATTERNS.forEach(pattern -> builder.add(pattern, pattern));
+        UrlPatternMatcher<String> matcher = builder.build();
+        for (String path : PATHS) {
+            List<String> expected = new ArrayList<>();
+            for (String pattern : PATTERNS) {
+                if (antPathMatcher.match(pattern, path)) {
+                    expected.add(pattern);
+                }
+            }
+            // 结果按添加顺序
+            assertEquals(expected, matcher.match("GET", path), "path: " + path);
+        }
+    }
+
+    @Test
+    void matchAllShorthand() {
+        UrlPatternMatcher<String> matcher = UrlPatternMatcher.<String>builder().add("**", "all").build();
+        assertTrue(matcher.matches("GET", "/"));
+        assertTrue(matcher.matches("GET", "/a/b"));
+    }
+
+    @Test
+    void filtersByMethod() {
+        UrlPatternMatcher<String> matcher = UrlPatternMatcher.<String>builder()
+                .add("/a/**", HttpMethod.POST, "post")
+                .add("/a/b", "any")
+                .build();
+        assertEquals(Arrays.asList("post", "any"), matcher.match("POST", "/a/b"));
+        assertEquals(Collections.singletonList("any"), matcher.match("GET", "/a/b"));
+        assertTrue(matcher.match("GET", "/a/c").isEmpty());
+    }
+
+    @Test
+    void ignoresBlankPatterns() {
+        UrlPatternMatcher<String> matcher = UrlPatternMatcher.<String>builder().add("", "x").add(null, "y").build();
+        assertTrue(matcher.isEmpty());
+        assertTrue(matcher.match("GET", "/").isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+package com.yizhishang.oauth.token.key;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.InvalidSignatureException;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link SigningKey} 签名格式与JWK转换测试
+ *
+ * @author yizhishang
+ */
+class SigningKeyTest {
+
+    @Test
+    void es256SignatureIsJwsFormat() {
+        SigningKey key = SigningKey.generate(SigningKey.ES256);
+        // r、s 有前导0时DER长度会变化, 多次签名覆盖
+        for (int i = 0; i < 200; i++) {
+            byte[] content = ("content-" + i).getBytes(StandardCharsets.UTF_8);
+            byte[] signature = key.sign(content);
+            assertEquals(64, signature.length);
+            key.getVerifier().verify(content, signature);
+        }
+    }
+
+    @Test
+    void rs256SignAndVerify() {
+        SigningKey key = SigningKey.generate(SigningKey.RS256);
+        byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+        key.getVerifier().verify(content, key.sign(content));
+    }
+
+    @Test
+    void rejectsTamperedContent() {
+        SigningKey key = SigningKey.generate(SigningKey.ES256);
+        byte[] signature = key.sign("content".getBytes(StandardCharsets.UTF_8));
+        assertThrows(InvalidSignatureException.class,
+                () -> key.getVerifier().verify("other".getBytes(StandardCharsets.UTF_8), signature));
+    }
+
+    @Test
+    void jwkRoundTrip() {
+        for (String algorithm : new String[]{SigningKey.ES256, SigningKey.RS256}) {
+            SigningKey key = SigningKey.generate(algorithm);
+            Map<String, Object> jwk = key.toJwk();
+            SigningKey restored = SigningKey.fromJwk(jwk);
+
+            assertEquals(key.getKid(), restored.getKid());
+            assertEquals(algorithm, restored.getAlgorithm());
+            assertEquals(key.getPublicKey(), restored.getPublicKey());
+            assertNull(restored.getPrivateKey());
+            assertEquals(jwk, restored.toJwk());
+
+            byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+            restored.getVerifier().verify(content, key.sign(content));
+            assertThrows(IllegalStateException.class, () -> restored.sign(content));
+        }
+    }
+
+    @Test
+    void decodeRoundTrip() {
+        SigningKey key = SigningKey.generate(SigningKey.ES256);
+        SigningKey decoded = SigningKey.decode(key.getKid(), key.getAlgorithm(), key.getCreatedAt(),
+                key.getPublicKey().getEncoded(), key.getPrivateKey().getEncoded());
+        byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+        key.getVerifier().verify(content, decoded.sign(content));
+    }
+
+    @Test
+    void jwtSignedWithKeyIsVerifiedByJwtHelper() {
+        SigningKey key = SigningKey.generate(SigningKey.ES256);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString(("{\"alg\":\"ES256\",\"typ\":\"JWT\",\"kid\":\"" + key.getKid() + "\"}").getBytes(StandardCharsets.UTF_8));
+        String claims = encoder.encodeToString("{\"sub\":\"user\"}".getBytes(StandardCharsets.UTF_8));
+        String signingInput = header + "." + claims;
+        String token = signingInput + "." + encoder.encodeToString(key.sign(signingInput.getBytes(StandardCharsets.UTF_8)));
+
+        SignatureVerifier verifier = SigningKey.fromJwk(key.toJwk()).getVerifier();
+        Jwt jwt = JwtHelper.decodeAndVerify(token, verifier);
+        assertEquals("{\"sub\":\"user\"}", jwt.getClaims());
+    }
+
+    @Test
+    void rejectsUnsupportedAlgorithm() {
+        assertThrows(IllegalArgumentException.class, () -> SigningKey.generate("HS256"));
+    }
+}
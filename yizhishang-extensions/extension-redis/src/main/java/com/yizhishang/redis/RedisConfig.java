@@ -3,12 +3,19 @@ package com.yizhishang.redis;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.lettuce.core.ReadFrom;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -25,9 +32,15 @@ public class RedisConfig {
      * 全局开启AutoType，不建议使用 ParserConfig.getGlobalInstance().setAutoTypeSupport(true); 建议使用这种方式，小范围指定白名单
      */
     @Bean
+    @Primary
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        return initTemplate(new RedisTemplate<>(), redisConnectionFactory);
+    }
 
-        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+    /**
+     * 统一的序列化配置, 锁专用模板({@link RedisConnectionConfig})同样使用
+     */
+    static RedisTemplate<String, Object> initTemplate(RedisTemplate<String, Object> redisTemplate, RedisConnectionFactory redisConnectionFactory) {
         // 配置连接工厂
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //使用Jackson2JsonRedisSerializer来序列化和反序列化redis的value值（默认使用JDK的序列化方式）
@@ -51,6 +64,28 @@ public class RedisConfig {
         return redisTemplate;
     }
 
+    /**
+     * 读节点选择(集群/哨兵模式生效), 如 spring.redis.readFrom=REPLICA_PREFERRED 时缓存读取优先走从节点
+     * <p>只影响读命令(GET、HGET等), 写命令和lua脚本(锁、限流)始终在主节点执行; 从节点存在复制延迟</p>
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.redis", name = "readFrom")
+    public LettuceClientConfigurationBuilderCustomizer readFromCustomizer(@Value("${spring.redis.readFrom}") String readFrom) {
+        log.info("redis读节点选择: {}", readFrom);
+        return builder -> builder.readFrom(ReadFrom.valueOf(readFrom));
+    }
+
+    /**
+     * pub/sub监听容器, 各组件共用(热点key广播等)
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
     /**
      * 对hash类型的数据操作
      */
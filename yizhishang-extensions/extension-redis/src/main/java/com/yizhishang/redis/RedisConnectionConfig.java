@@ -0,0 +1,224 @@
+package com.yizhishang.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.*;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * redis连接层调优
+ * <pre>
+ * 1. 主连接工厂(spring boot自动配置): 共享原生连接、管道按阈值flush、启动时建立连接
+ * 2. 锁连接工厂: 独立的lettuce连接池, 锁脚本不与热点GET共用连接; 只供lockRedisTemplate使用, 不注册为bean
+ * 3. 预热: 启动完成前PING主连接, 并按minIdle预填充锁连接池
+ * </pre>
+ * 配置见 {@link RedisConnectionProperties}
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Configuration
+@AutoConfigureAfter(RedisAutoConfiguration.class)
+@EnableConfigurationProperties(RedisConnectionProperties.class)
+public class RedisConnectionConfig implements SmartInitializingSingleton, DisposableBean {
+
+    private final RedisConnectionProperties connectionProperties;
+
+    private final RedisProperties redisProperties;
+
+    private final RedisConnectionFactory redisConnectionFactory;
+
+    /**
+     * 锁连接工厂, lock.enabled=false 时为null
+     */
+    private LettuceConnectionFactory lockConnectionFactory;
+
+    public RedisConnectionConfig(RedisConnectionProperties connectionProperties, RedisProperties redisProperties,
+                                 RedisConnectionFactory redisConnectionFactory) {
+        this.connectionProperties = connectionProperties;
+        this.redisProperties = redisProperties;
+        this.redisConnectionFactory = redisConnectionFactory;
+    }
+
+    /**
+     * 在主连接工厂初始化前调整参数(static: 不提前实例化本配置类)
+     */
+    @Bean
+    public static BeanPostProcessor lettuceConnectionFactoryPostProcessor() {
+        return new LettuceTuningPostProcessor();
+    }
+
+    /**
+     * 锁专用模板, 序列化方式与redisTemplate一致
+     */
+    @Bean
+    public RedisTemplate<String, Object> lockRedisTemplate() {
+        RedisConnectionProperties.Lock lock = connectionProperties.getLock();
+        if (!lock.isEnabled()) {
+            return RedisConfig.initTemplate(new RedisTemplate<>(), redisConnectionFactory);
+        }
+        lockConnectionFactory = createLockConnectionFactory(lock);
+        lockConnectionFactory.afterPropertiesSet();
+        log.info("redis锁连接池: maxActive={}, minIdle={}", lock.getMaxActive(), lock.getMinIdle());
+        return RedisConfig.initTemplate(new RedisTemplate<>(), lockConnectionFactory);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!connectionProperties.isWarmUp()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            connection.ping();
+        } catch (Exception e) {
+            log.warn("redis主连接预热失败", e);
+            return;
+        }
+        if (lockConnectionFactory != null) {
+            prefill(lockConnectionFactory, connectionProperties.getLock().getMinIdle());
+        }
+        log.info("redis连接预热完成, 耗时{}ms", System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void destroy() {
+        if (lockConnectionFactory != null) {
+            lockConnectionFactory.destroy();
+        }
+    }
+
+    /**
+     * 同时借出count个连接并PING, 归还后留在池中
+     */
+    private static void prefill(RedisConnectionFactory factory, int count) {
+        List<RedisConnection> connections = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                RedisConnection connection = factory.getConnection();
+                connections.add(connection);
+                connection.ping();
+            }
+        } catch (Exception e) {
+            log.warn("redis锁连接池预热失败", e);
+        } finally {
+            connections.forEach(RedisConnection::close);
+        }
+    }
+
+    private LettuceConnectionFactory createLockConnectionFactory(RedisConnectionProperties.Lock lock) {
+        GenericObjectPoolConfig<?> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal(lock.getMaxActive());
+        poolConfig.setMaxIdle(lock.getMaxIdle());
+        poolConfig.setMinIdle(lock.getMinIdle());
+        poolConfig.setMaxWaitMillis(lock.getMaxWait().toMillis());
+
+        LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder builder = LettucePoolingClientConfiguration.builder()
+                .poolConfig(poolConfig)
+                .commandTimeout(lock.getCommandTimeout());
+        if (redisProperties.isSsl()) {
+            builder.useSsl();
+        }
+        if (StringUtils.isNotBlank(redisProperties.getClientName())) {
+            builder.clientName(redisProperties.getClientName() + "-lock");
+        }
+        LettucePoolingClientConfiguration clientConfiguration = builder.build();
+
+        LettuceConnectionFactory factory;
+        RedisProperties.Cluster cluster = redisProperties.getCluster();
+        RedisProperties.Sentinel sentinel = redisProperties.getSentinel();
+        if (cluster != null && cluster.getNodes() != null) {
+            RedisClusterConfiguration configuration = new RedisClusterConfiguration(cluster.getNodes());
+            if (cluster.getMaxRedirects() != null) {
+                configuration.setMaxRedirects(cluster.getMaxRedirects());
+            }
+            configuration.setPassword(RedisPassword.of(redisProperties.getPassword()));
+            factory = new LettuceConnectionFactory(configuration, clientConfiguration);
+        } else if (sentinel != null && sentinel.getNodes() != null) {
+            RedisSentinelConfiguration configuration = new RedisSentinelConfiguration(sentinel.getMaster(), new HashSet<>(sentinel.getNodes()));
+            configuration.setPassword(RedisPassword.of(redisProperties.getPassword()));
+            if (sentinel.getPassword() != null) {
+                configuration.setSentinelPassword(RedisPassword.of(sentinel.getPassword()));
+            }
+            configuration.setDatabase(redisProperties.getDatabase());
+            factory = new LettuceConnectionFactory(configuration, clientConfiguration);
+        } else {
+            factory = new LettuceConnectionFactory(standaloneConfiguration(), clientConfiguration);
+        }
+        // 锁脚本可能阻塞连接, 每次从池中取独立连接
+        factory.setShareNativeConnection(false);
+        return factory;
+    }
+
+    private RedisStandaloneConfiguration standaloneConfiguration() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration();
+        if (StringUtils.isNotBlank(redisProperties.getUrl())) {
+            URI uri = URI.create(redisProperties.getUrl());
+            configuration.setHostName(uri.getHost());
+            configuration.setPort(uri.getPort());
+            String userInfo = uri.getUserInfo();
+            if (userInfo != null) {
+                configuration.setPassword(RedisPassword.of(userInfo.substring(userInfo.indexOf(':') + 1)));
+            }
+        } else {
+            configuration.setHostName(redisProperties.getHost());
+            configuration.setPort(redisProperties.getPort());
+            configuration.setPassword(RedisPassword.of(redisProperties.getPassword()));
+        }
+        configuration.setDatabase(redisProperties.getDatabase());
+        return configuration;
+    }
+
+    /**
+     * 调整spring boot创建的LettuceConnectionFactory
+     */
+    static class LettuceTuningPostProcessor implements BeanPostProcessor, EnvironmentAware {
+
+        private RedisConnectionProperties properties;
+
+        @Override
+        public void setEnvironment(Environment environment) {
+            properties = Binder.get(environment).bind("spring.redis.connection", RedisConnectionProperties.class)
+                    .orElseGet(RedisConnectionProperties::new);
+        }
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            if (!(bean instanceof LettuceConnectionFactory)) {
+                return bean;
+            }
+            LettuceConnectionFactory factory = (LettuceConnectionFactory) bean;
+            factory.setShareNativeConnection(properties.isShareNativeConnection());
+            factory.setValidateConnection(properties.isValidateConnection());
+            int threshold = properties.getPipeliningFlushThreshold();
+            factory.setPipeliningFlushPolicy(threshold > 0
+                    ? LettuceConnection.PipeliningFlushPolicy.buffered(threshold)
+                    : LettuceConnection.PipeliningFlushPolicy.flushEachCommand());
+            factory.setEagerInitialization(properties.isWarmUp());
+            log.info("redis主连接工厂[{}]: shareNativeConnection={}, pipeliningFlushThreshold={}",
+                    beanName, properties.isShareNativeConnection(), threshold);
+            return bean;
+        }
+    }
+}
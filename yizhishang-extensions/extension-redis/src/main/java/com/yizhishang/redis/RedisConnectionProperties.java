@@ -0,0 +1,76 @@
+package com.yizhishang.redis;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * redis连接层配置(lettuce)
+ * <pre>
+ * 主连接工厂(spring.redis.*): 共享原生连接, 承载GET等热点读写
+ * 锁连接工厂(spring.redis.connection.lock.*): 独立连接池, 承载锁脚本, 避免与热点命令互相阻塞
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.redis.connection")
+public class RedisConnectionProperties {
+
+    /**
+     * 主连接工厂是否共享同一个原生连接(lettuce线程安全, 高并发下性能最好)
+     */
+    private boolean shareNativeConnection = true;
+
+    /**
+     * 获取连接时是否校验共享连接(会额外发送PING, 默认关闭)
+     */
+    private boolean validateConnection = false;
+
+    /**
+     * 管道每累计多少条命令flush一次, 小于等于0时每条命令立即flush
+     */
+    private int pipeliningFlushThreshold = 64;
+
+    /**
+     * 启动时预热连接(建立共享连接、预填充锁连接池), 避免首批请求承担建连耗时
+     */
+    private boolean warmUp = true;
+
+    private Lock lock = new Lock();
+
+    @Data
+    public static class Lock {
+
+        /**
+         * 是否为锁使用独立连接工厂, 关闭时与主连接工厂共用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 命令超时时间
+         */
+        private Duration commandTimeout = Duration.ofSeconds(3);
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maxActive = 16;
+
+        /**
+         * 连接池最大空闲连接数
+         */
+        private int maxIdle = 16;
+
+        /**
+         * 连接池最小空闲连接数, 预热时按此数量建立连接
+         */
+        private int minIdle = 4;
+
+        /**
+         * 连接池耗尽时最大等待时间
+         */
+        private Duration maxWait = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.yizhishang.redis.bloom;
+
+import com.google.common.hash.Hashing;
+import com.yizhishang.redis.RedisException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 布隆过滤器参数及哈希位计算
+ * <p>根据预计插入数量、误判率计算位数组长度和哈希函数个数, 本地位数组与redis bitmap共用同一套偏移量</p>
+ *
+ * @author yizhishang
+ */
+public class BloomFilterHelper {
+
+    /**
+     * redis bitmap 最大位数 2^32
+     */
+    private static final long MAX_BIT_SIZE = 1L << 32;
+
+    private final long expectedInsertions;
+
+    private final double fpp;
+
+    private final long bitSize;
+
+    private final int numHashFunctions;
+
+    /**
+     * @param expectedInsertions 预计插入数量
+     * @param fpp                误判率(0,1)
+     */
+    public BloomFilterHelper(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0) {
+            throw new RedisException("预计插入数量必须大于0");
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new RedisException("误判率必须在(0,1)之间");
+        }
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.bitSize = optimalNumOfBits(expectedInsertions, fpp);
+        if (bitSize > MAX_BIT_SIZE) {
+            throw new RedisException("位数组长度超过redis bitmap上限, 请减少预计插入数量或提高误判率");
+        }
+        this.numHashFunctions = optimalNumOfHashFunctions(expectedInsertions, bitSize);
+    }
+
+    /**
+     * 计算值对应的位偏移量(murmur3_128 双重哈希)
+     *
+     * @param value 值
+     * @return 长度为哈希函数个数的偏移量数组
+     */
+    public long[] offsets(String value) {
+        byte[] bytes = Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asBytes();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        long hash1 = buffer.getLong();
+        long hash2 = buffer.getLong();
+
+        long[] offsets = new long[numHashFunctions];
+        long combinedHash = hash1;
+        for (int i = 0; i < numHashFunctions; i++) {
+            offsets[i] = (combinedHash & Long.MAX_VALUE) % bitSize;
+            combinedHash += hash2;
+        }
+        return offsets;
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public double getFpp() {
+        return fpp;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    /**
+     * m = -n * ln(p) / (ln2)^2
+     */
+    private static long optimalNumOfBits(long n, double p) {
+        return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+
+    /**
+     * k = m / n * ln2
+     */
+    private static int optimalNumOfHashFunctions(long n, long m) {
+        return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.yizhishang.redis.bloom;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * 命名布隆过滤器的数据来源, 注册为bean后由 {@link BloomFilterRegistry} 在启动时加载
+ *
+ * @author yizhishang
+ */
+public interface BloomFilterProvider {
+
+    /**
+     * 布隆过滤器名称, 与 @RedisCache(bloom = "...") 对应
+     *
+     * @return 名称
+     */
+    String name();
+
+    /**
+     * 预计插入数量
+     *
+     * @return 数量
+     */
+    long expectedInsertions();
+
+    /**
+     * 误判率
+     *
+     * @return 误判率
+     */
+    default double fpp() {
+        return 0.01;
+    }
+
+    /**
+     * 全量加载(如从数据库分页读取), 每批数据交给sink
+     *
+     * @param sink 接收一批值
+     */
+    void load(Consumer<Collection<String>> sink);
+}
@@ -0,0 +1,213 @@
+package com.yizhishang.redis.bloom;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.redis.util.RedisKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命名布隆过滤器注册中心, 用于防缓存穿透
+ * <pre>
+ * 1. 启动时: redis bitmap(bloom:{name}) 已存在则整体加载到本地, 否则由 {@link BloomFilterProvider} 全量加载并写入bitmap
+ * 2. 运行时: 先读本地副本, 本地判断存在时不访问redis; 本地判断不存在时再查redis bitmap(其他节点新增且尚未同步的数据), 存在则补入本地
+ * 3. 新增数据通过 put 同时写本地和bitmap; 重建期间同时写入新旧两份
+ * 4. 定时同步: 每 spring.redis.bloom.syncInterval 秒合并一次bitmap, 获取其他节点新增的数据
+ * 加载/重建完成前或redis不可用时判断一律放行, 不会误拦截
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class BloomFilterRegistry implements SmartInitializingSingleton {
+
+    private static final String KEY_PREFIX = "bloom:";
+
+    /**
+     * 同步间隔(秒)
+     */
+    @Value("${spring.redis.bloom.syncInterval:60}")
+    private long syncInterval;
+
+    private final RedisBloomService redisBloomService;
+
+    private final ObjectProvider<BloomFilterProvider> providers;
+
+    private final Map<String, Holder> filters = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("bloom-sync-%d").setDaemon(true).build());
+
+    public BloomFilterRegistry(RedisBloomService redisBloomService, ObjectProvider<BloomFilterProvider> providers) {
+        this.redisBloomService = redisBloomService;
+        this.providers = providers;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        providers.orderedStream().forEach(provider -> {
+            filters.put(provider.name(), new Holder(provider));
+            executor.execute(() -> load(provider.name()));
+        });
+        if (!filters.isEmpty()) {
+            executor.scheduleWithFixedDelay(this::syncAll, syncInterval, syncInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 判断是否可能存在
+     *
+     * @param name  布隆过滤器名称
+     * @param value 值
+     * @return false-一定不存在; 过滤器未注册或未加载完成时返回true
+     */
+    public boolean mightContain(String name, String value) {
+        Holder holder = filters.get(name);
+        LocalBloomFilter filter = holder == null ? null : holder.filter;
+        if (filter == null || holder.rebuilding != null) {
+            return true;
+        }
+        if (filter.mightContain(value)) {
+            return true;
+        }
+        // 本地不存在: 可能是其他节点新增、尚未同步, 以redis bitmap为准
+        try {
+            if (!redisBloomService.bitmapExists(getKey(name), holder.helper, Collections.singletonList(value)).get(0)) {
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("布隆过滤器[{}]读取redis失败, 暂不拦截", name, e);
+            return true;
+        }
+        filter.put(value);
+        return true;
+    }
+
+    /**
+     * 新增数据后调用, 同时写入本地及redis bitmap
+     *
+     * @param name  布隆过滤器名称
+     * @param value 值
+     */
+    public void put(String name, String value) {
+        Holder holder = filters.get(name);
+        if (holder == null) {
+            return;
+        }
+        LocalBloomFilter filter = holder.filter;
+        if (filter != null) {
+            filter.put(value);
+        }
+        LocalBloomFilter rebuilding = holder.rebuilding;
+        if (rebuilding != null) {
+            rebuilding.put(value);
+        }
+        try {
+            redisBloomService.bitmapAdd(getKey(name), holder.helper, Collections.singletonList(value));
+        } catch (Exception e) {
+            log.error("布隆过滤器[{}]写入redis失败", name, e);
+        }
+    }
+
+    /**
+     * 从数据来源全量重建(删除的数据不会从布隆过滤器移除, 可定期重建)
+     *
+     * @param name 布隆过滤器名称
+     */
+    public void rebuild(String name) {
+        Holder holder = filters.get(name);
+        if (holder == null) {
+            return;
+        }
+        synchronized (holder) {
+            LocalBloomFilter filter = new LocalBloomFilter(holder.helper);
+            String key = getKey(name);
+            // 重建期间的 put 同时写入新过滤器
+            holder.rebuilding = filter;
+            try {
+                redisBloomService.bitmapDelete(key);
+                holder.provider.load(values -> {
+                    filter.putAll(values);
+                    redisBloomService.bitmapAdd(key, holder.helper, values);
+                });
+                holder.filter = filter;
+            } finally {
+                holder.rebuilding = null;
+            }
+        }
+        log.info("布隆过滤器[{}]重建完成", name);
+    }
+
+    private void load(String name) {
+        Holder holder = filters.get(name);
+        try {
+            byte[] bitmap = redisBloomService.bitmapBytes(getKey(name));
+            if (bitmap == null) {
+                rebuild(name);
+                return;
+            }
+            LocalBloomFilter filter = new LocalBloomFilter(holder.helper);
+            filter.merge(bitmap);
+            holder.filter = filter;
+            log.info("布隆过滤器[{}]从redis加载完成", name);
+        } catch (Exception e) {
+            log.error("布隆过滤器[{}]加载失败, 暂不拦截", name, e);
+        }
+    }
+
+    private void syncAll() {
+        filters.forEach((name, holder) -> {
+            try {
+                if (holder.filter == null) {
+                    load(name);
+                } else {
+                    holder.filter.merge(redisBloomService.bitmapBytes(getKey(name)));
+                }
+            } catch (Exception e) {
+                log.error("布隆过滤器[{}]同步失败", name, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static String getKey(String name) {
+        return RedisKeyUtil.tagged(KEY_PREFIX, name);
+    }
+
+    private static class Holder {
+
+        private final BloomFilterProvider provider;
+
+        private final BloomFilterHelper helper;
+
+        /**
+         * 加载完成前为null
+         */
+        private volatile LocalBloomFilter filter;
+
+        /**
+         * 重建中的过滤器, 重建完成后为null
+         */
+        private volatile LocalBloomFilter rebuilding;
+
+        Holder(BloomFilterProvider provider) {
+            this.provider = provider;
+            this.helper = new BloomFilterHelper(provider.expectedInsertions(), provider.fpp());
+        }
+    }
+}
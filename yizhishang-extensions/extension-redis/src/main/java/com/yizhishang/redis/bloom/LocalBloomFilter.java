@@ -0,0 +1,106 @@
+package com.yizhishang.redis.bloom;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 纯java布隆过滤器, 不依赖RedisBloom模块, 线程安全
+ * <p>位偏移量与 {@link RedisBloomService} 的bitmap方法一致, 可通过 {@link #merge(byte[])} 合并redis bitmap</p>
+ *
+ * @author yizhishang
+ */
+public class LocalBloomFilter {
+
+    private final BloomFilterHelper helper;
+
+    private final AtomicLongArray words;
+
+    public LocalBloomFilter(long expectedInsertions, double fpp) {
+        this(new BloomFilterHelper(expectedInsertions, fpp));
+    }
+
+    public LocalBloomFilter(BloomFilterHelper helper) {
+        this.helper = helper;
+        this.words = new AtomicLongArray((int) ((helper.getBitSize() + 63) >>> 6));
+    }
+
+    /**
+     * 添加
+     *
+     * @param value 值
+     * @return true-新添加, false-可能已存在
+     */
+    public boolean put(String value) {
+        boolean changed = false;
+        for (long offset : helper.offsets(value)) {
+            changed |= setBit(offset);
+        }
+        return changed;
+    }
+
+    /**
+     * 批量添加
+     *
+     * @param values 值
+     */
+    public void putAll(Collection<String> values) {
+        for (String value : values) {
+            put(value);
+        }
+    }
+
+    /**
+     * 判断是否可能存在
+     *
+     * @param value 值
+     * @return true-可能存在, false-一定不存在
+     */
+    public boolean mightContain(String value) {
+        for (long offset : helper.offsets(value)) {
+            if ((words.get((int) (offset >>> 6)) & (1L << offset)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 合并redis bitmap(GET取得的原始字节), 按位或
+     * <p>redis bitmap 每个字节的最高位为低偏移量</p>
+     *
+     * @param bitmap redis bitmap
+     */
+    public void merge(byte[] bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        int length = Math.min(bitmap.length, words.length() * 8);
+        for (int i = 0; i < length; i += 8) {
+            long word = 0L;
+            for (int j = 0; j < 8 && i + j < length; j++) {
+                long reversed = Integer.reverse(bitmap[i + j] & 0xff) >>> 24;
+                word |= reversed << (j * 8);
+            }
+            if (word != 0L) {
+                words.accumulateAndGet(i >>> 3, word, (a, b) -> a | b);
+            }
+        }
+    }
+
+    public BloomFilterHelper getHelper() {
+        return helper;
+    }
+
+    private boolean setBit(long offset) {
+        int index = (int) (offset >>> 6);
+        long mask = 1L << offset;
+        long old;
+        do {
+            old = words.get(index);
+            if ((old & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(index, old, old | mask));
+        return true;
+    }
+}
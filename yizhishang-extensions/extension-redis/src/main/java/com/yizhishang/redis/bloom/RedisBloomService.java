@@ -1,38 +1,202 @@
 package com.yizhishang.redis.bloom;
 
+import com.yizhishang.redis.util.Consts;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
+ * 布隆过滤器
+ * <pre>
+ * 1. RedisBloom模块: add/exists/madd/mexists, 批量方法一次往返
+ * 2. 无模块部署: bitmapAdd/bitmapExists 使用普通bitmap(SETBIT/GETBIT管道),
+ *    bitmapLoad 可整体加载为 {@link LocalBloomFilter} 在本地判断
+ * </pre>
+ *
  * @author yizhishang
  * @since 2020/8/5 17:44
  */
 @Service
 public class RedisBloomService {
 
-    private static final String EXISTS_STRING = "return redis.call('BF.EXISTS', ARGV[1], KEYS[1])";
+    private static final String EXISTS_STRING = "return redis.call('BF.EXISTS', KEYS[1], ARGV[1])";
+
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
 
     private final RedisTemplate<String, Object> redisTemplate;
 
+    private final DefaultRedisScript<Boolean> existsScript;
+
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> maddScript;
+
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> mexistsScript;
+
     public RedisBloomService(RedisTemplate<String, Object> redisTemplate) {
         this.redisTemplate = redisTemplate;
+        existsScript = new DefaultRedisScript<>(EXISTS_STRING, Boolean.class);
+
+        maddScript = new DefaultRedisScript<>();
+        maddScript.setResultType(List.class);
+        maddScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("bloomFilter-madd.lua")));
+
+        mexistsScript = new DefaultRedisScript<>();
+        mexistsScript.setResultType(List.class);
+        mexistsScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("bloomFilter-mexists.lua")));
     }
 
+    /**
+     * 添加(BF.MADD)
+     *
+     * @param key    布隆过滤器名称
+     * @param values 值
+     * @return 最后一个值是否新添加
+     */
     public Boolean add(String key, List<String> values) {
-        DefaultRedisScript<Boolean> bloomAdd = new DefaultRedisScript<>();
-        bloomAdd.setScriptSource(new ResourceScriptSource(new ClassPathResource("bloomFilter-insert.lua")));
-        bloomAdd.setResultType(Boolean.class);
-        return redisTemplate.execute(bloomAdd, values, key);
+        List<Boolean> result = madd(key, values);
+        return result.isEmpty() ? Boolean.FALSE : result.get(result.size() - 1);
     }
 
     public Boolean exists(String key, String value) {
-        DefaultRedisScript<Boolean> bloomExists = new DefaultRedisScript<>(EXISTS_STRING, Boolean.class);
-        return redisTemplate.execute(bloomExists, Collections.singletonList(value), key);
+        return execute(existsScript, key, Collections.singletonList(value));
+    }
+
+    /**
+     * 批量添加(BF.MADD), 一次往返
+     *
+     * @param key    布隆过滤器名称
+     * @param values 值
+     * @return 与values顺序一致, true-新添加
+     */
+    public List<Boolean> madd(String key, Collection<String> values) {
+        return toBooleans(execute(maddScript, key, values));
+    }
+
+    /**
+     * 批量判断(BF.MEXISTS), 一次往返
+     *
+     * @param key    布隆过滤器名称
+     * @param values 值
+     * @return 与values顺序一致, true-可能存在, false-一定不存在
+     */
+    public List<Boolean> mexists(String key, Collection<String> values) {
+        return toBooleans(execute(mexistsScript, key, values));
+    }
+
+    /**
+     * 添加到普通bitmap(SETBIT管道, 无需RedisBloom模块)
+     *
+     * @param key    bitmap键
+     * @param helper 布隆过滤器参数
+     * @param values 值
+     */
+    public void bitmapAdd(String key, BloomFilterHelper helper, Collection<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        byte[] rawKey = STRING_SERIALIZER.serialize(key);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String value : values) {
+                for (long offset : helper.offsets(value)) {
+                    connection.setBit(rawKey, offset, true);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 从普通bitmap批量判断(GETBIT管道, 一次往返)
+     *
+     * @param key    bitmap键
+     * @param helper 布隆过滤器参数
+     * @param values 值
+     * @return 与values顺序一致, true-可能存在, false-一定不存在
+     */
+    public List<Boolean> bitmapExists(String key, BloomFilterHelper helper, List<String> values) {
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        byte[] rawKey = STRING_SERIALIZER.serialize(key);
+        List<Object> bits = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String value : values) {
+                for (long offset : helper.offsets(value)) {
+                    connection.getBit(rawKey, offset);
+                }
+            }
+            return null;
+        });
+
+        int k = helper.getNumHashFunctions();
+        List<Boolean> result = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            boolean exists = true;
+            for (int j = i * k; j < (i + 1) * k && exists; j++) {
+                exists = Boolean.TRUE.equals(bits.get(j));
+            }
+            result.add(exists);
+        }
+        return result;
+    }
+
+    /**
+     * 整体加载普通bitmap到本地布隆过滤器, 之后的判断无需访问redis
+     *
+     * @param key    bitmap键
+     * @param helper 布隆过滤器参数
+     * @return 本地布隆过滤器
+     */
+    public LocalBloomFilter bitmapLoad(String key, BloomFilterHelper helper) {
+        LocalBloomFilter filter = new LocalBloomFilter(helper);
+        filter.merge(bitmapBytes(key));
+        return filter;
+    }
+
+    /**
+     * 读取bitmap原始字节
+     *
+     * @param key bitmap键
+     * @return 原始字节, 不存在时为null
+     */
+    public byte[] bitmapBytes(String key) {
+        byte[] rawKey = STRING_SERIALIZER.serialize(key);
+        return redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey));
+    }
+
+    /**
+     * 删除bitmap
+     *
+     * @param key bitmap键
+     */
+    public void bitmapDelete(String key) {
+        redisTemplate.delete(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T execute(RedisScript<T> script, String key, Collection<String> values) {
+        RedisSerializer<T> resultSerializer = (RedisSerializer<T>) (RedisSerializer<?>) STRING_SERIALIZER;
+        return redisTemplate.execute(script, STRING_SERIALIZER, resultSerializer,
+                Collections.singletonList(key), values.toArray());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static List<Boolean> toBooleans(List result) {
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return ((List<?>) result).stream().map(Consts.SUCCESS::equals).collect(Collectors.toList());
     }
 }
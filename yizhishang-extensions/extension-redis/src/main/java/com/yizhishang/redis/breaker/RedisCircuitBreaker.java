@@ -0,0 +1,263 @@
+package com.yizhishang.redis.breaker;
+
+import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.util.Consts;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * redis熔断器
+ * <pre>
+ * CLOSED: 最近 windowSize 次调用中(至少 minCalls 次)失败率 &gt;= failureRate% 或慢调用率 &gt;= slowCallRate% 时打开
+ * OPEN: openDuration 秒内所有调用直接抛出 {@link RedisException}, 不访问redis
+ * HALF_OPEN: 放行 halfOpenCalls 次探测调用, 全部成功则关闭, 任意一次失败或慢调用则重新打开
+ *
+ * 降级行为:
+ * 1. @RedisCache: 绕过redis, 使用本地短期缓存
+ * 2. @Limit/@RateLimit: 使用本机限流
+ * 3. RedisLock: 快速失败
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class RedisCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Value("${spring.redis.breaker.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 统计最近多少次调用
+     */
+    @Value("${spring.redis.breaker.windowSize:100}")
+    private int windowSize;
+
+    /**
+     * 最少调用次数, 不足时不计算失败率
+     */
+    @Value("${spring.redis.breaker.minCalls:20}")
+    private int minCalls;
+
+    /**
+     * 失败率阈值(%)
+     */
+    @Value("${spring.redis.breaker.failureRate:50}")
+    private int failureRate;
+
+    /**
+     * 慢调用耗时(毫秒)
+     */
+    @Value("${spring.redis.breaker.slowCall:500}")
+    private long slowCall;
+
+    /**
+     * 慢调用率阈值(%)
+     */
+    @Value("${spring.redis.breaker.slowCallRate:80}")
+    private int slowCallRate;
+
+    /**
+     * 打开持续时间(秒)
+     */
+    @Value("${spring.redis.breaker.openDuration:10}")
+    private long openDuration;
+
+    /**
+     * 半开状态探测次数
+     */
+    @Value("${spring.redis.breaker.halfOpenCalls:5}")
+    private int halfOpenCalls;
+
+    private static final int EMPTY = 0;
+
+    private static final int SUCCESS = 1;
+
+    private static final int FAILURE = 2;
+
+    private static final int SLOW = 3;
+
+    private volatile State state = State.CLOSED;
+
+    private volatile long openedAt;
+
+    /**
+     * 环形窗口(无锁): 0-空, 1-成功, 2-失败, 3-慢调用; 计数与窗口内容同步增减, 锁只用于状态切换
+     */
+    private AtomicIntegerArray window;
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder slows = new LongAdder();
+
+    private int halfOpenPermits;
+
+    private int halfOpenSuccesses;
+
+    @PostConstruct
+    public void init() {
+        window = new AtomicIntegerArray(windowSize);
+    }
+
+    /**
+     * 通过熔断器调用redis
+     *
+     * @param call redis调用
+     * @param <T>  返回类型
+     * @return 调用结果
+     * @throws RedisException 熔断打开时
+     */
+    public <T> T execute(Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        if (!tryAcquire()) {
+            throw new RedisException(Consts.REDIS_CIRCUIT_OPEN);
+        }
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            onResult(false, start);
+            return result;
+        } catch (RuntimeException e) {
+            onResult(true, start);
+            throw e;
+        }
+    }
+
+    /**
+     * 是否处于打开状态(不消耗半开探测次数), 用于提前选择降级逻辑
+     *
+     * @return true-熔断中
+     */
+    public boolean isOpen() {
+        return enabled && state == State.OPEN
+                && System.currentTimeMillis() - openedAt < TimeUnit.SECONDS.toMillis(openDuration);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < TimeUnit.SECONDS.toMillis(openDuration)) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+                log.info("redis熔断器半开, 开始探测");
+            }
+            if (halfOpenPermits > 0) {
+                halfOpenPermits--;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private void onResult(boolean failure, long startNanos) {
+        boolean slow = System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(slowCall);
+        State current = state;
+        if (current == State.OPEN) {
+            return;
+        }
+        if (current == State.HALF_OPEN) {
+            onHalfOpenResult(failure || slow);
+            return;
+        }
+        record(failure ? FAILURE : slow ? SLOW : SUCCESS);
+
+        long total = calls.sum();
+        if (total < minCalls) {
+            return;
+        }
+        long failed = failures.sum();
+        long slowed = slows.sum();
+        if (failed * 100 >= failureRate * total) {
+            openIfClosed("失败率" + failed * 100 / total + "%");
+        } else if (slowed * 100 >= slowCallRate * total) {
+            openIfClosed("慢调用率" + slowed * 100 / total + "%");
+        }
+    }
+
+    private synchronized void onHalfOpenResult(boolean failed) {
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        if (failed) {
+            open("半开探测失败");
+        } else if (++halfOpenSuccesses >= halfOpenCalls) {
+            close();
+        }
+    }
+
+    private synchronized void openIfClosed(String reason) {
+        if (state == State.CLOSED) {
+            open(reason);
+        }
+    }
+
+    private void record(int outcome) {
+        int slot = (int) (cursor.getAndIncrement() % windowSize);
+        int previous = window.getAndSet(slot, outcome);
+        if (previous == EMPTY) {
+            calls.increment();
+        } else {
+            count(previous, -1);
+        }
+        count(outcome, 1);
+    }
+
+    private void count(int outcome, int delta) {
+        if (outcome == FAILURE) {
+            failures.add(delta);
+        } else if (outcome == SLOW) {
+            slows.add(delta);
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        log.warn("redis熔断器打开({}), {}秒后半开探测", reason, openDuration);
+    }
+
+    private void close() {
+        // 逐个清空槽位并同步扣减计数, 避免与仍在记录的调用产生负数计数
+        for (int i = 0; i < windowSize; i++) {
+            int previous = window.getAndSet(i, EMPTY);
+            if (previous != EMPTY) {
+                calls.decrement();
+                count(previous, -1);
+            }
+        }
+        cursor.set(0);
+        state = State.CLOSED;
+        log.info("redis熔断器关闭");
+    }
+}
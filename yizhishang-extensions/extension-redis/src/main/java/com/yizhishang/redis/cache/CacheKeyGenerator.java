@@ -0,0 +1,60 @@
+package com.yizhishang.redis.cache;
+
+import com.yizhishang.redis.cache.annotation.RedisCache;
+import com.yizhishang.redis.util.ExplainUtil;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * {@link RedisCache} 的key生成规则, 切面和缓存预热共用
+ * <pre>
+ * 1. 自定义key: 按 {@link ExplainUtil} 解析
+ * 2. 未设置key: 方法名 + 参数(多个), 如 queryByClientId.test
+ * </pre>
+ *
+ * @author yizhishang
+ */
+public class CacheKeyGenerator {
+
+    private CacheKeyGenerator() {
+
+    }
+
+    /**
+     * 生成缓存key
+     *
+     * @param redisCache 缓存注解
+     * @param methodName 方法名
+     * @param paramNames 参数名
+     * @param args       参数值
+     * @return 缓存key
+     */
+    public static String generate(RedisCache redisCache, String methodName, String[] paramNames, Object[] args) {
+        if (StringUtils.isNotBlank(redisCache.key())) {
+            return ExplainUtil.explainKey(redisCache.key(), paramNames, args);
+        }
+        return generate(methodName, args);
+    }
+
+    /**
+     * 方法名 + 参数(多个) 生成Key
+     *
+     * @param methodName 方法名
+     * @param args       参数值
+     * @return 缓存key
+     */
+    public static String generate(String methodName, Object[] args) {
+        StringBuilder key = new StringBuilder(methodName);
+        if (args == null) {
+            return key.toString();
+        }
+        for (Object arg : args) {
+            // 参数
+            if (arg == null) {
+                key.append(".#");
+                continue;
+            }
+            key.append(".").append(arg);
+        }
+        return key.toString();
+    }
+}
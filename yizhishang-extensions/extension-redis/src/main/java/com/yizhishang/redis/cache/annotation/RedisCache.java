@@ -24,4 +24,30 @@ public @interface RedisCache {
      */
     int expire() default 0;
 
+    /**
+     * 命名缓存(spring.redis.cache.specs.缓存名), 不为空时过期时间、序列化、压缩、本地缓存等按该缓存的配置, expire 不生效
+     *
+     * @see com.yizhishang.redis.cache.spec.CacheSpecRegistry
+     */
+    String cache() default "";
+
+    /**
+     * 异步写入: 未命中时方法返回值放入写入队列后立即返回, 由后台批量写入redis
+     *
+     * @see com.yizhishang.redis.cache.writebehind.CacheWriteBehindQueue
+     */
+    boolean async() default false;
+
+    /**
+     * 布隆过滤器名称(防缓存穿透), 不为空时先判断本地布隆过滤器, 一定不存在则直接返回null, 不访问redis和数据库
+     *
+     * @see com.yizhishang.redis.bloom.BloomFilterRegistry
+     */
+    String bloom() default "";
+
+    /**
+     * 布隆过滤器判断的值, 格式同key(如 #user.username), 默认取第一个参数
+     */
+    String bloomKey() default "";
+
 }
\ No newline at end of file
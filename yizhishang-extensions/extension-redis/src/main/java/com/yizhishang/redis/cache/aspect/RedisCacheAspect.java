@@ -1,6 +1,16 @@
 package com.yizhishang.redis.cache.aspect;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.yizhishang.redis.bloom.BloomFilterRegistry;
+import com.yizhishang.redis.breaker.RedisCircuitBreaker;
+import com.yizhishang.redis.cache.CacheKeyGenerator;
 import com.yizhishang.redis.cache.annotation.RedisCache;
+import com.yizhishang.redis.cache.spec.CacheSpecRegistry;
+import com.yizhishang.redis.cache.spec.NamedRedisCache;
+import com.yizhishang.redis.cache.writebehind.CacheWriteBehindQueue;
 import com.yizhishang.redis.lock.RedisLock;
 import com.yizhishang.redis.util.ExplainUtil;
 import com.yizhishang.redis.util.RedisUtil;
@@ -8,14 +18,23 @@ import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.CodeSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 分布式缓存
  * 防雪崩，缓存时间随机
+ * redis熔断或不可用时降级为本地短期缓存(同一key本机只查询一次数据库), 避免请求全部打到数据库
+ * 指定 cache 时按命名缓存的配置读写; async 时未命中的返回值异步写入redis
  *
  * @author yizhishang
  */
@@ -29,10 +48,46 @@ public class RedisCacheAspect {
 
     private final RedisLock redisLock;
 
+    private final BloomFilterRegistry bloomFilterRegistry;
+
+    private final RedisCircuitBreaker circuitBreaker;
+
+    private final CacheSpecRegistry cacheSpecRegistry;
+
+    private final CacheWriteBehindQueue cacheWriteBehindQueue;
+
+    /**
+     * 降级时本地缓存时间(秒)
+     */
+    @Value("${spring.redis.breaker.localCacheTtl:30}")
+    private long localCacheTtl;
+
+    /**
+     * 降级时本地最多缓存多少个key
+     */
+    @Value("${spring.redis.breaker.localCacheSize:10000}")
+    private long localCacheSize;
+
+    private Cache<String, Optional<Object>> localCache;
+
     @Autowired
-    public RedisCacheAspect(RedisUtil redisUtil, RedisLock redisLock) {
+    public RedisCacheAspect(RedisUtil redisUtil, RedisLock redisLock, BloomFilterRegistry bloomFilterRegistry,
+                            RedisCircuitBreaker circuitBreaker, CacheSpecRegistry cacheSpecRegistry,
+                            CacheWriteBehindQueue cacheWriteBehindQueue) {
         this.redisUtil = redisUtil;
         this.redisLock = redisLock;
+        this.bloomFilterRegistry = bloomFilterRegistry;
+        this.circuitBreaker = circuitBreaker;
+        this.cacheSpecRegistry = cacheSpecRegistry;
+        this.cacheWriteBehindQueue = cacheWriteBehindQueue;
+    }
+
+    @PostConstruct
+    public void init() {
+        localCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(localCacheTtl, TimeUnit.SECONDS)
+                .maximumSize(localCacheSize)
+                .build();
     }
 
     /**
@@ -45,68 +100,201 @@ public class RedisCacheAspect {
      */
     @Around("@annotation(redisCache)")
     public Object addCache(ProceedingJoinPoint joinPoint, RedisCache redisCache) throws Throwable {
-        String key = redisCache.key();
-        if (StringUtils.isBlank(key)) {
-            key = getCacheKey(joinPoint);
-        } else {
-            key = ExplainUtil.explainKey(key, joinPoint);
+        CodeSignature signature = (CodeSignature) joinPoint.getSignature();
+        String key = CacheKeyGenerator.generate(redisCache, signature.getName(), signature.getParameterNames(), joinPoint.getArgs());
+        // 布隆过滤器判断一定不存在, 防缓存穿透
+        if (StringUtils.isNotBlank(redisCache.bloom())
+                && !bloomFilterRegistry.mightContain(redisCache.bloom(), getBloomValue(joinPoint, redisCache))) {
+            log.debug("布隆过滤器[{}]判断不存在, key: {}", redisCache.bloom(), key);
+            return null;
+        }
+        if (circuitBreaker.isOpen()) {
+            return getLocal(key, joinPoint);
+        }
+        Optional<Object> pending = getPending(key, redisCache);
+        if (pending != null) {
+            return pending.orElse(null);
+        }
+        if (StringUtils.isNotBlank(redisCache.cache())) {
+            return addNamedCache(joinPoint, key, redisCache);
         }
         // 查询缓存
         log.debug("取值key, {}", key);
         Object result = null;
-        if (redisUtil.hasKey(key)) {
-            result = redisUtil.get(key);
-            log.debug("从redis中取出缓存, value: {}", result);
-            return result;
+        try {
+            if (redisUtil.hasKey(key)) {
+                result = redisUtil.get(key);
+                log.debug("从redis中取出缓存, value: {}", result);
+                return result;
+            }
+        } catch (RuntimeException e) {
+            log.warn("读取缓存失败, 降级为本地缓存, key: {}", key, e);
+            return getLocal(key, joinPoint);
         }
 
         // 加自旋锁锁, 防止缓存击穿
         boolean lock;
         do {
-            lock = redisLock.tryLock(key, 1);
+            try {
+                lock = redisLock.tryLock(key, 1);
+            } catch (RuntimeException e) {
+                // redis不可用(含熔断), 不再自旋
+                log.warn("获取缓存锁失败, 降级为本地缓存, key: {}", key, e);
+                return getLocal(key, joinPoint);
+            }
             if (lock) {
-                if (redisUtil.hasKey(key)) {
-                    result = redisUtil.get(key);
-                    log.debug("从redis中取出缓存, value: {}", result);
-                    return result;
+                try {
+                    pending = getPending(key, redisCache);
+                    if (pending != null) {
+                        releaseLock(key);
+                        return pending.orElse(null);
+                    }
+                    if (redisUtil.hasKey(key)) {
+                        result = redisUtil.get(key);
+                        log.debug("从redis中取出缓存, value: {}", result);
+                        releaseLock(key);
+                        return result;
+                    }
+                } catch (RuntimeException e) {
+                    releaseLock(key);
+                    log.warn("读取缓存失败, 降级为本地缓存, key: {}", key, e);
+                    return getLocal(key, joinPoint);
+                }
+                try {
+                    result = joinPoint.proceed();
+                    // 设置key-null, 防止缓存穿透
+                    if (!redisCache.async() || !cacheWriteBehindQueue.offer(key, result, redisCache)) {
+                        long expireTime = redisUtil.getRandomExpire(redisCache.expire());
+                        redisUtil.set(key, result, expireTime);
+                    }
+                } finally {
+                    releaseLock(key);
                 }
+            }
+        } while (!lock);
 
-                result = joinPoint.proceed();
-                // 设置key-null, 防止缓存穿透
-                long expireTime = redisUtil.getRandomExpire(redisCache.expire());
-                redisUtil.set(key, result, expireTime);
+        return result;
+    }
 
-                redisLock.releaseLock(key);
+    /**
+     * 命名缓存: 先本地后redis, 未命中时加锁执行方法
+     */
+    private Object addNamedCache(ProceedingJoinPoint joinPoint, String key, RedisCache redisCache) throws Throwable {
+        NamedRedisCache cache = cacheSpecRegistry.get(redisCache.cache());
+        Optional<Object> cached;
+        try {
+            cached = cache.get(key);
+        } catch (RuntimeException e) {
+            log.warn("读取缓存[{}]失败, 降级为本地缓存, key: {}", cache.getName(), key, e);
+            return getLocal(key, joinPoint);
+        }
+        if (cached != null) {
+            log.debug("从缓存[{}]中取出, key: {}", cache.getName(), key);
+            return cached.orElse(null);
+        }
+        Object result = null;
+        boolean lock;
+        do {
+            try {
+                lock = redisLock.tryLock(key, 1);
+            } catch (RuntimeException e) {
+                log.warn("获取缓存锁失败, 降级为本地缓存, key: {}", key, e);
+                return getLocal(key, joinPoint);
+            }
+            if (lock) {
+                try {
+                    cached = getPending(key, redisCache);
+                    if (cached == null) {
+                        cached = cache.get(key);
+                    }
+                    if (cached != null) {
+                        releaseLock(key);
+                        return cached.orElse(null);
+                    }
+                } catch (RuntimeException e) {
+                    releaseLock(key);
+                    log.warn("读取缓存[{}]失败, 降级为本地缓存, key: {}", cache.getName(), key, e);
+                    return getLocal(key, joinPoint);
+                }
+                try {
+                    result = joinPoint.proceed();
+                    if (!redisCache.async() || !cacheWriteBehindQueue.offer(key, result, redisCache)) {
+                        putNamedCache(cache, key, result);
+                    }
+                } finally {
+                    releaseLock(key);
+                }
             }
         } while (!lock);
-
         return result;
     }
 
     /**
-     * 包名+ 类名 + 方法名 + 参数(多个) 生成Key
+     * 写入命名缓存, 失败时只记录日志: 方法已执行完成, 结果照常返回
      */
-    public String getCacheKey(ProceedingJoinPoint pjp) {
-        StringBuilder key = new StringBuilder();
+    private void putNamedCache(NamedRedisCache cache, String key, Object result) {
+        try {
+            cache.put(key, result);
+        } catch (RuntimeException e) {
+            log.error("写入缓存[{}]失败, key: {}", cache.getName(), key, e);
+        }
+    }
 
-        String methodName = pjp.getSignature().getName();
-        key.append(methodName);
+    /**
+     * 释放缓存锁, 失败(含熔断)时只记录日志: 方法已执行完成, 锁到期后自动释放
+     */
+    private void releaseLock(String key) {
+        try {
+            redisLock.releaseLock(key);
+        } catch (RuntimeException e) {
+            log.warn("释放缓存锁失败, 等待锁过期, key: {}", key, e);
+        }
+    }
+
+    /**
+     * 异步写入队列中尚未写入redis的值
+     */
+    private Optional<Object> getPending(String key, RedisCache redisCache) {
+        return redisCache.async() ? cacheWriteBehindQueue.getPending(key) : null;
+    }
 
-        // 参数(多个)
-        Object[] args = pjp.getArgs();
-        if (args == null) {
-            return key.toString();
+    /**
+     * 降级: 本地缓存, 同一key并发时只有一个线程执行方法
+     */
+    private Object getLocal(String key, ProceedingJoinPoint joinPoint) throws Throwable {
+        try {
+            return localCache.get(key, () -> {
+                try {
+                    return Optional.ofNullable(joinPoint.proceed());
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new ExecutionException(e);
+                }
+            }).orElse(null);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof ExecutionException ? cause.getCause() : cause;
         }
-        for (Object arg : args) {
-            // 参数
-            if (arg == null) {
-                key.append(".#");
-                continue;
-            }
-            key.append(".").append(arg);
+    }
+
+    /**
+     * 布隆过滤器判断的值: 默认第一个参数
+     */
+    private String getBloomValue(ProceedingJoinPoint joinPoint, RedisCache redisCache) {
+        if (StringUtils.isNotBlank(redisCache.bloomKey())) {
+            // explainKey 结果以":"开头
+            return ExplainUtil.explainKey(redisCache.bloomKey(), joinPoint).substring(1);
         }
+        Object[] args = joinPoint.getArgs();
+        return args == null || args.length == 0 ? "" : String.valueOf(args[0]);
+    }
 
-        return key.toString();
+    /**
+     * 包名+ 类名 + 方法名 + 参数(多个) 生成Key
+     */
+    public String getCacheKey(ProceedingJoinPoint pjp) {
+        return CacheKeyGenerator.generate(pjp.getSignature().getName(), pjp.getArgs());
     }
 
 }
\ No newline at end of file
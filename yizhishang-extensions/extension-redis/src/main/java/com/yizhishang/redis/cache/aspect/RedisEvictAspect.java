@@ -1,6 +1,8 @@
 package com.yizhishang.redis.cache.aspect;
 
 import com.yizhishang.redis.cache.annotation.RedisEvict;
+import com.yizhishang.redis.cache.spec.CacheSpecRegistry;
+import com.yizhishang.redis.cache.writebehind.CacheWriteBehindQueue;
 import com.yizhishang.redis.util.ExplainUtil;
 import com.yizhishang.redis.util.RedisUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -22,9 +24,15 @@ public class RedisEvictAspect {
 
     private final RedisUtil redisUtil;
 
+    private final CacheSpecRegistry cacheSpecRegistry;
+
+    private final CacheWriteBehindQueue cacheWriteBehindQueue;
+
     @Autowired
-    public RedisEvictAspect(RedisUtil redisUtil) {
+    public RedisEvictAspect(RedisUtil redisUtil, CacheSpecRegistry cacheSpecRegistry, CacheWriteBehindQueue cacheWriteBehindQueue) {
         this.redisUtil = redisUtil;
+        this.cacheSpecRegistry = cacheSpecRegistry;
+        this.cacheWriteBehindQueue = cacheWriteBehindQueue;
     }
 
     /**
@@ -41,7 +49,9 @@ public class RedisEvictAspect {
         if (redisEvict.keys().length > 0) {
             for (String key : redisEvict.keys()) {
                 String redisKey = ExplainUtil.explainKey(key, joinPoint);
+                cacheWriteBehindQueue.cancel(redisKey);
                 redisUtil.remove(redisKey);
+                cacheSpecRegistry.evictLocal(redisKey);
             }
         }
         return joinPoint.proceed();
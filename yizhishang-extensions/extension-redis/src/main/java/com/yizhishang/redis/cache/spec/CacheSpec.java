@@ -0,0 +1,66 @@
+package com.yizhishang.redis.cache.spec;
+
+import lombok.Data;
+
+/**
+ * 命名缓存配置: spring.redis.cache.specs.缓存名.*
+ *
+ * @author yizhishang
+ */
+@Data
+public class CacheSpec {
+
+    public enum Serializer {
+        /**
+         * 与redisTemplate相同的jackson序列化
+         */
+        JSON,
+        /**
+         * jdk序列化, 值需实现Serializable
+         */
+        JDK
+    }
+
+    public enum Compression {
+        NONE, GZIP
+    }
+
+    /**
+     * 过期时间(秒), 0-使用全局 spring.redis.cache.expireTime + randomTime
+     */
+    private long ttl;
+
+    /**
+     * 随机过期时间范围(秒), 在ttl基础上增加[0, jitter)
+     */
+    private long jitter;
+
+    /**
+     * 序列化后(压缩前)超过多少字节不缓存, 0-不限制
+     */
+    private int maxValueSize;
+
+    private Serializer serializer = Serializer.JSON;
+
+    private Compression compression = Compression.NONE;
+
+    /**
+     * 超过多少字节才压缩
+     */
+    private int compressThreshold = 1024;
+
+    /**
+     * 本地缓存最多多少个key, 0-不使用本地缓存
+     */
+    private long localSize;
+
+    /**
+     * 本地缓存时间(秒), 各节点本地缓存最多不一致这么久
+     */
+    private long localTtl = 10;
+
+    /**
+     * 是否缓存null(防缓存穿透)
+     */
+    private boolean cacheNull = true;
+}
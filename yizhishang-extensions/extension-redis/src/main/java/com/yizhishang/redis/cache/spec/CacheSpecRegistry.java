@@ -0,0 +1,201 @@
+package com.yizhishang.redis.cache.spec;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.redis.breaker.RedisCircuitBreaker;
+import com.yizhishang.redis.util.RedisUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命名缓存注册表
+ * <pre>
+ * spring.redis.cache.specs.缓存名.ttl=600
+ * spring.redis.cache.specs.缓存名.compression=gzip
+ * 1. @RedisCache(cache = "缓存名") 引用, 未配置的名称使用默认配置
+ * 2. reload 重新读取配置(specReloadInterval 大于0时定时执行); 配置中删除的缓存随之移除, 之后使用默认配置
+ * 3. update 在运行时修改单个缓存, 优先于配置文件且不会被 reload 覆盖, removeOverride 后恢复为配置文件的值
+ * 4. 配置变更时整体替换, 读取方不加锁; 被替换缓存的本地值随之丢弃
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class CacheSpecRegistry implements SmartInitializingSingleton {
+
+    private static final String PREFIX = "spring.redis.cache.specs";
+
+    /**
+     * 定时重新读取配置的间隔(秒), 0-不定时读取
+     */
+    @Value("${spring.redis.cache.specReloadInterval:0}")
+    private long reloadInterval;
+
+    private final Environment environment;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final RedisCircuitBreaker circuitBreaker;
+
+    private final RedisUtil redisUtil;
+
+    private volatile Map<String, NamedRedisCache> caches = Collections.emptyMap();
+
+    /**
+     * update 设置的运行时配置
+     */
+    private final Map<String, CacheSpec> overrides = new HashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    public CacheSpecRegistry(Environment environment, RedisTemplate<String, Object> redisTemplate,
+                             RedisCircuitBreaker circuitBreaker, RedisUtil redisUtil) {
+        this.environment = environment;
+        this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.redisUtil = redisUtil;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+        if (reloadInterval > 0) {
+            executor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("cache-spec-reload-%d").setDaemon(true).build());
+            executor.scheduleWithFixedDelay(this::reload, reloadInterval, reloadInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 获取命名缓存, 未配置时使用默认配置
+     *
+     * @param name 缓存名称
+     * @return 缓存
+     */
+    public NamedRedisCache get(String name) {
+        NamedRedisCache cache = caches.get(name);
+        if (cache == null) {
+            synchronized (this) {
+                cache = caches.get(name);
+                if (cache == null) {
+                    log.warn("缓存[{}]未配置, 使用默认配置", name);
+                    cache = put(name, new CacheSpec());
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 重新读取配置, 配置未变化的缓存保留(含本地值); 运行时配置优先
+     */
+    public synchronized void reload() {
+        try {
+            Map<String, CacheSpec> specs = new HashMap<>(Binder.get(environment)
+                    .bind(PREFIX, Bindable.mapOf(String.class, CacheSpec.class))
+                    .orElse(Collections.emptyMap()));
+            specs.putAll(overrides);
+            Map<String, NamedRedisCache> current = caches;
+            Map<String, NamedRedisCache> next = new HashMap<>(specs.size() * 2);
+            specs.forEach((name, spec) -> {
+                NamedRedisCache cache = current.get(name);
+                if (cache == null || !cache.getSpec().equals(spec)) {
+                    log.info("缓存[{}]配置: {}", name, spec);
+                    cache = create(name, spec);
+                }
+                next.put(name, cache);
+            });
+            // 不在配置中的缓存: 默认配置的保留, 其他(配置已删除)移除, 下次使用时按默认配置创建
+            CacheSpec defaultSpec = new CacheSpec();
+            current.forEach((name, cache) -> {
+                if (next.containsKey(name)) {
+                    return;
+                }
+                if (cache.getSpec().equals(defaultSpec)) {
+                    next.put(name, cache);
+                } else {
+                    log.info("缓存[{}]配置已删除, 使用默认配置", name);
+                }
+            });
+            caches = next;
+        } catch (Exception e) {
+            log.error("缓存配置读取失败, 保留当前配置", e);
+        }
+    }
+
+    /**
+     * 运行时修改单个缓存的配置
+     *
+     * @param name 缓存名称
+     * @param spec 配置
+     */
+    public synchronized void update(String name, CacheSpec spec) {
+        log.info("缓存[{}]配置修改: {}", name, spec);
+        overrides.put(name, spec);
+        put(name, spec);
+    }
+
+    /**
+     * 删除运行时配置, 恢复为配置文件的值
+     *
+     * @param name 缓存名称
+     */
+    public synchronized void removeOverride(String name) {
+        if (overrides.remove(name) != null) {
+            reload();
+        }
+    }
+
+    /**
+     * 当前配置
+     *
+     * @return 缓存名称 -> 配置
+     */
+    public Map<String, CacheSpec> getSpecs() {
+        Map<String, CacheSpec> specs = new HashMap<>(caches.size());
+        caches.forEach((name, cache) -> specs.put(name, cache.getSpec()));
+        return specs;
+    }
+
+    /**
+     * 清除所有命名缓存中该key的本地值
+     *
+     * @param key 键
+     */
+    public void evictLocal(String key) {
+        caches.values().forEach(cache -> cache.evictLocal(key));
+    }
+
+    private NamedRedisCache put(String name, CacheSpec spec) {
+        NamedRedisCache cache = create(name, spec);
+        Map<String, NamedRedisCache> next = new HashMap<>(caches);
+        next.put(name, cache);
+        caches = next;
+        return cache;
+    }
+
+    private NamedRedisCache create(String name, CacheSpec spec) {
+        return new NamedRedisCache(name, spec, redisTemplate, circuitBreaker, () -> redisUtil.getRandomExpire(0));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.yizhishang.redis.cache.spec;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.breaker.RedisCircuitBreaker;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 按 {@link CacheSpec} 读写的命名缓存
+ * <pre>
+ * redis中的值: 1字节标记 + 内容, 标记 0-未压缩, 1-gzip, 2-null
+ * 没有标记的值(切换配置前由redisTemplate写入)按json读取
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+public class NamedRedisCache {
+
+    private static final byte PLAIN = 0;
+
+    private static final byte GZIP = 1;
+
+    private static final byte NULL = 2;
+
+    private static final StringRedisSerializer KEY_SERIALIZER = StringRedisSerializer.UTF_8;
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final CacheSpec spec;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final RedisCircuitBreaker circuitBreaker;
+
+    private final RedisSerializer<Object> jsonSerializer;
+
+    private final RedisSerializer<Object> serializer;
+
+    /**
+     * ttl为0时的过期时间
+     */
+    private final LongSupplier defaultExpire;
+
+    /**
+     * 本地缓存, localSize为0时为null
+     */
+    private final Cache<String, Optional<Object>> local;
+
+    @SuppressWarnings("unchecked")
+    NamedRedisCache(String name, CacheSpec spec, RedisTemplate<String, Object> redisTemplate, RedisCircuitBreaker circuitBreaker, LongSupplier defaultExpire) {
+        this.name = name;
+        this.spec = spec;
+        this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.defaultExpire = defaultExpire;
+        this.jsonSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        this.serializer = spec.getSerializer() == CacheSpec.Serializer.JDK ? new JdkSerializationRedisSerializer() : jsonSerializer;
+        this.local = spec.getLocalSize() > 0
+                ? CacheBuilder.newBuilder().maximumSize(spec.getLocalSize()).expireAfterWrite(spec.getLocalTtl(), TimeUnit.SECONDS).build()
+                : null;
+    }
+
+    /**
+     * 读取, 先本地后redis
+     *
+     * @param key 键
+     * @return null-未命中, Optional.empty()-缓存的null
+     */
+    public Optional<Object> get(String key) {
+        if (local != null) {
+            Optional<Object> value = local.getIfPresent(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        byte[] bytes = circuitBreaker.execute(() -> redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(KEY_SERIALIZER.serialize(key))));
+        if (bytes == null) {
+            return null;
+        }
+        Optional<Object> value = Optional.ofNullable(decode(bytes));
+        if (local != null) {
+            local.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 写入redis和本地缓存, 值为null且不缓存null、或超过最大长度时不写入
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void put(String key, Object value) {
+        byte[] bytes = encode(key, value);
+        if (bytes == null) {
+            return;
+        }
+        long expire = expire();
+        circuitBreaker.execute(() -> redisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.setEx(KEY_SERIALIZER.serialize(key), expire, bytes)));
+        if (local != null) {
+            local.put(key, Optional.ofNullable(value));
+        }
+    }
+
+    /**
+     * 批量写入redis(SET EX管道, 一次往返)
+     *
+     * @param values 键 -> 值
+     */
+    public void putAll(Map<String, Object> values) {
+        circuitBreaker.execute(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            values.forEach((key, value) -> {
+                byte[] bytes = encode(key, value);
+                if (bytes != null) {
+                    connection.setEx(KEY_SERIALIZER.serialize(key), expire(), bytes);
+                }
+            });
+            return null;
+        }));
+    }
+
+    /**
+     * 清除本地缓存
+     *
+     * @param key 键
+     */
+    public void evictLocal(String key) {
+        if (local != null) {
+            local.invalidate(key);
+        }
+    }
+
+    /**
+     * 过期时间(秒): ttl + [0, jitter)
+     */
+    long expire() {
+        long ttl = spec.getTtl() > 0 ? spec.getTtl() : defaultExpire.getAsLong();
+        return spec.getJitter() > 0 ? ttl + ThreadLocalRandom.current().nextLong(spec.getJitter()) : ttl;
+    }
+
+    /**
+     * 序列化, 不需要写入时返回null
+     */
+    byte[] encode(String key, Object value) {
+        if (value == null) {
+            return spec.isCacheNull() ? new byte[]{NULL} : null;
+        }
+        byte[] bytes = serializer.serialize(value);
+        if (bytes == null) {
+            return null;
+        }
+        if (spec.getMaxValueSize() > 0 && bytes.length > spec.getMaxValueSize()) {
+            log.warn("缓存[{}]的值超过{}字节, 不缓存, key: {}", name, spec.getMaxValueSize(), key);
+            return null;
+        }
+        boolean compress = spec.getCompression() == CacheSpec.Compression.GZIP && bytes.length >= spec.getCompressThreshold();
+        byte[] payload = compress ? gzip(bytes) : bytes;
+        byte[] result = new byte[payload.length + 1];
+        result[0] = compress ? GZIP : PLAIN;
+        System.arraycopy(payload, 0, result, 1, payload.length);
+        return result;
+    }
+
+    Object decode(byte[] bytes) {
+        if (bytes.length == 0) {
+            return null;
+        }
+        switch (bytes[0]) {
+            case NULL:
+                return null;
+            case PLAIN:
+                return serializer.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+            case GZIP:
+                return serializer.deserialize(gunzip(bytes));
+            default:
+                return jsonSerializer.deserialize(bytes);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new RedisException("缓存压缩失败", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = gzip.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new RedisException("缓存解压失败", e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,28 @@
+package com.yizhishang.redis.cache.warmup;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 预热条目: 方法参数及其返回值
+ *
+ * @author yizhishang
+ */
+@Getter
+@AllArgsConstructor
+public class CacheWarmUpEntry {
+
+    /**
+     * 方法参数, 与 @RedisCache 方法的参数顺序一致
+     */
+    private final Object[] args;
+
+    /**
+     * 方法返回值
+     */
+    private final Object value;
+
+    public static CacheWarmUpEntry of(Object value, Object... args) {
+        return new CacheWarmUpEntry(args, value);
+    }
+}
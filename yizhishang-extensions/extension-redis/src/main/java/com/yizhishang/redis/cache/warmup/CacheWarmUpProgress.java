@@ -0,0 +1,47 @@
+package com.yizhishang.redis.cache.warmup;
+
+import lombok.Getter;
+
+/**
+ * 预热进度
+ *
+ * @author yizhishang
+ */
+@Getter
+public class CacheWarmUpProgress {
+
+    public enum Status {
+        RUNNING, FINISHED, FAILED
+    }
+
+    private final String name;
+
+    private volatile Status status = Status.RUNNING;
+
+    private volatile long count;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private volatile long endTime;
+
+    private volatile String error;
+
+    CacheWarmUpProgress(String name) {
+        this.name = name;
+    }
+
+    void add(int size) {
+        count += size;
+    }
+
+    void finish() {
+        endTime = System.currentTimeMillis();
+        status = Status.FINISHED;
+    }
+
+    void fail(Throwable e) {
+        endTime = System.currentTimeMillis();
+        error = e.getMessage();
+        status = Status.FAILED;
+    }
+}
@@ -0,0 +1,43 @@
+package com.yizhishang.redis.cache.warmup;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 缓存预热数据来源, 注册为bean后由 {@link CacheWarmUpService} 在启动时或手动执行
+ *
+ * @author yizhishang
+ */
+public interface CacheWarmUpProvider {
+
+    /**
+     * 名称
+     *
+     * @return 名称
+     */
+    String name();
+
+    /**
+     * 预热的 @RedisCache 方法, 按其注解生成key和过期时间
+     *
+     * @return 方法
+     */
+    Method method();
+
+    /**
+     * 是否在启动时执行
+     *
+     * @return true-启动时执行
+     */
+    default boolean onStartup() {
+        return true;
+    }
+
+    /**
+     * 分批加载(如从数据库分页读取), 每批交给sink; sink会按限速阻塞, 从而控制数据库读取速度
+     *
+     * @param sink 接收一批条目
+     */
+    void load(Consumer<List<CacheWarmUpEntry>> sink);
+}
@@ -0,0 +1,187 @@
+package com.yizhishang.redis.cache.warmup;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.cache.CacheKeyGenerator;
+import com.yizhishang.redis.cache.annotation.RedisCache;
+import com.yizhishang.redis.cache.spec.CacheSpecRegistry;
+import com.yizhishang.redis.util.RedisUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 缓存预热, 用于redis清空或主从切换后避免数据库承担全部流量
+ * <pre>
+ * 1. 启动时(spring.redis.warmUp.onStartup)或调用 warmUp/warmUpAll 时执行 {@link CacheWarmUpProvider}
+ * 2. 最多 parallelism 个来源同时执行, 整体按 rate 条/秒限速
+ * 3. key、过期时间和命名缓存配置与 @RedisCache 切面一致, 每批一次管道写入
+ * 4. 进度通过 getProgress 查看
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class CacheWarmUpService implements SmartInitializingSingleton {
+
+    @Value("${spring.redis.warmUp.onStartup:true}")
+    private boolean onStartup;
+
+    /**
+     * 同时执行的来源数
+     */
+    @Value("${spring.redis.warmUp.parallelism:2}")
+    private int parallelism;
+
+    /**
+     * 限速(条/秒)
+     */
+    @Value("${spring.redis.warmUp.rate:1000}")
+    private double rate;
+
+    private final RedisUtil redisUtil;
+
+    private final ObjectProvider<CacheWarmUpProvider> providerProvider;
+
+    private final CacheSpecRegistry cacheSpecRegistry;
+
+    private final Map<String, CacheWarmUpProvider> providers = new LinkedHashMap<>();
+
+    private final Map<String, CacheWarmUpProgress> progress = new ConcurrentHashMap<>();
+
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    /**
+     * 来源名称 -> 方法参数名
+     */
+    private final Map<String, String[]> paramNames = new HashMap<>();
+
+    private ExecutorService executor;
+
+    private RateLimiter rateLimiter;
+
+    public CacheWarmUpService(RedisUtil redisUtil, ObjectProvider<CacheWarmUpProvider> providerProvider, CacheSpecRegistry cacheSpecRegistry) {
+        this.redisUtil = redisUtil;
+        this.providerProvider = providerProvider;
+        this.cacheSpecRegistry = cacheSpecRegistry;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        providerProvider.orderedStream().forEach(provider -> {
+            Method method = provider.method();
+            RedisCache redisCache = method.getAnnotation(RedisCache.class);
+            if (redisCache == null) {
+                throw new RedisException("缓存预热[" + provider.name() + "]的方法没有@RedisCache注解");
+            }
+            // 与 @RedisCache 切面相同, 参数名来自 DefaultParameterNameDiscoverer; 取不到时生成的key与切面不一致
+            String[] names = parameterNameDiscoverer.getParameterNames(method);
+            if (StringUtils.isNotBlank(redisCache.key()) && method.getParameterCount() > 0 && names == null) {
+                throw new RedisException("缓存预热[" + provider.name() + "]无法读取方法" + method.getName() + "的参数名, 请使用 -parameters 编译");
+            }
+            providers.put(provider.name(), provider);
+            paramNames.put(provider.name(), names);
+        });
+        if (providers.isEmpty()) {
+            return;
+        }
+        executor = Executors.newFixedThreadPool(parallelism,
+                new ThreadFactoryBuilder().setNameFormat("cache-warmup-%d").setDaemon(true).build());
+        rateLimiter = RateLimiter.create(rate);
+        if (onStartup) {
+            providers.values().stream().filter(CacheWarmUpProvider::onStartup).forEach(provider -> submit(provider.name()));
+        }
+    }
+
+    /**
+     * 执行所有来源
+     */
+    public void warmUpAll() {
+        providers.keySet().forEach(this::submit);
+    }
+
+    /**
+     * 异步执行一个来源, 正在执行时忽略
+     *
+     * @param name 来源名称
+     * @return 进度
+     */
+    public CacheWarmUpProgress warmUp(String name) {
+        if (!providers.containsKey(name)) {
+            throw new RedisException("缓存预热来源不存在: " + name);
+        }
+        return submit(name);
+    }
+
+    /**
+     * 各来源最近一次执行的进度
+     *
+     * @return 进度
+     */
+    public Collection<CacheWarmUpProgress> getProgress() {
+        return Collections.unmodifiableCollection(progress.values());
+    }
+
+    private CacheWarmUpProgress submit(String name) {
+        CacheWarmUpProgress current = progress.get(name);
+        if (current != null && current.getStatus() == CacheWarmUpProgress.Status.RUNNING) {
+            return current;
+        }
+        CacheWarmUpProgress next = new CacheWarmUpProgress(name);
+        progress.put(name, next);
+        executor.execute(() -> run(providers.get(name), next));
+        return next;
+    }
+
+    private void run(CacheWarmUpProvider provider, CacheWarmUpProgress current) {
+        Method method = provider.method();
+        RedisCache redisCache = method.getAnnotation(RedisCache.class);
+        String[] names = paramNames.get(provider.name());
+        log.info("缓存预热[{}]开始", provider.name());
+        try {
+            provider.load(entries -> {
+                if (entries.isEmpty()) {
+                    return;
+                }
+                rateLimiter.acquire(entries.size());
+                Map<String, Object> values = new HashMap<>(entries.size() * 2);
+                for (CacheWarmUpEntry entry : entries) {
+                    values.put(CacheKeyGenerator.generate(redisCache, method.getName(), names, entry.getArgs()), entry.getValue());
+                }
+                if (redisCache.cache().isEmpty()) {
+                    redisUtil.setAll(values, redisCache.expire());
+                } else {
+                    cacheSpecRegistry.get(redisCache.cache()).putAll(values);
+                }
+                current.add(entries.size());
+                log.debug("缓存预热[{}]已完成{}条", provider.name(), current.getCount());
+            });
+            current.finish();
+            log.info("缓存预热[{}]完成, 共{}条, 耗时{}ms", provider.name(), current.getCount(), current.getEndTime() - current.getStartTime());
+        } catch (Exception e) {
+            current.fail(e);
+            log.error("缓存预热[{}]失败, 已完成{}条", provider.name(), current.getCount(), e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.yizhishang.redis.cache.writebehind;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.redis.cache.annotation.RedisCache;
+import com.yizhishang.redis.cache.spec.CacheSpecRegistry;
+import com.yizhishang.redis.util.RedisUtil;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @RedisCache(async = true) 的异步写入队列
+ * <pre>
+ * 1. 缓存未命中时方法返回值放入队列后立即返回, 不等待redis写入
+ * 2. 同一key只保留最后一次写入; 每 flushInterval 毫秒或积累 batchSize 个时按管道批量写入
+ * 3. 队列中的值可通过 getPending 读取, 写入redis前同一key不会重复查询数据库
+ * 4. 队列已满(maxPending)时 offer 返回false, 由调用方同步写入
+ * 5. @RedisEvict 调用 cancel 取消尚未写入的值; 正在写入的值在写入后删除
+ * 写入失败(含熔断)时丢弃, 下次未命中重新加载
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class CacheWriteBehindQueue implements SmartInitializingSingleton {
+
+    /**
+     * 最多等待写入的key数
+     */
+    @Value("${spring.redis.writeBehind.maxPending:10000}")
+    private int maxPending;
+
+    /**
+     * 每批写入数量
+     */
+    @Value("${spring.redis.writeBehind.batchSize:200}")
+    private int batchSize;
+
+    /**
+     * 写入间隔(毫秒)
+     */
+    @Value("${spring.redis.writeBehind.flushInterval:50}")
+    private long flushInterval;
+
+    private final RedisUtil redisUtil;
+
+    private final CacheSpecRegistry cacheSpecRegistry;
+
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 正在写入的key
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 写入过程中被取消的key, 写入后删除
+     */
+    private final Set<String> cancelled = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("cache-write-behind-%d").setDaemon(true).build());
+
+    public CacheWriteBehindQueue(RedisUtil redisUtil, CacheSpecRegistry cacheSpecRegistry) {
+        this.redisUtil = redisUtil;
+        this.cacheSpecRegistry = cacheSpecRegistry;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 放入队列
+     *
+     * @param key        键
+     * @param value      值
+     * @param redisCache 缓存注解(过期时间、命名缓存)
+     * @return false-队列已满, 需同步写入
+     */
+    public boolean offer(String key, Object value, RedisCache redisCache) {
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            log.debug("缓存异步写入队列已满, key: {}", key);
+            return false;
+        }
+        pending.put(key, new PendingWrite(value, redisCache.cache(), redisCache.expire()));
+        if (pending.size() >= batchSize && !flushing.get()) {
+            executor.execute(this::flush);
+        }
+        return true;
+    }
+
+    /**
+     * 等待写入的值
+     *
+     * @param key 键
+     * @return null-不在队列中, Optional.empty()-值为null
+     */
+    public Optional<Object> getPending(String key) {
+        PendingWrite write = pending.get(key);
+        return write == null ? null : Optional.ofNullable(write.value);
+    }
+
+    /**
+     * 取消写入
+     *
+     * @param key 键
+     */
+    public void cancel(String key) {
+        pending.remove(key);
+        if (inFlight.contains(key)) {
+            cancelled.add(key);
+        }
+    }
+
+    /**
+     * 写入队列中的所有值
+     */
+    public void flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            while (!pending.isEmpty()) {
+                flushBatch();
+            }
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    private void flushBatch() {
+        // 按 命名缓存/过期时间 分组, 同组一次管道
+        Map<String, Map<Integer, Map<String, Object>>> groups = new HashMap<>();
+        Iterator<Map.Entry<String, PendingWrite>> iterator = pending.entrySet().iterator();
+        int count = 0;
+        while (iterator.hasNext() && count < batchSize) {
+            Map.Entry<String, PendingWrite> entry = iterator.next();
+            PendingWrite write = entry.getValue();
+            inFlight.add(entry.getKey());
+            if (!pending.remove(entry.getKey(), write)) {
+                // 已被覆盖或取消, 下一批处理
+                inFlight.remove(entry.getKey());
+                cancelled.remove(entry.getKey());
+                continue;
+            }
+            groups.computeIfAbsent(write.cache, k -> new HashMap<>())
+                    .computeIfAbsent(write.expire, k -> new HashMap<>())
+                    .put(entry.getKey(), write.value);
+            count++;
+        }
+        try {
+            // 每组单独处理, 一组失败不影响其他组
+            groups.forEach((cache, byExpire) -> byExpire.forEach((expire, values) -> {
+                try {
+                    if (cache.isEmpty()) {
+                        redisUtil.setAll(values, expire);
+                    } else {
+                        cacheSpecRegistry.get(cache).putAll(values);
+                    }
+                } catch (Exception e) {
+                    log.warn("缓存[{}]异步写入失败, 丢弃{}个key", cache, values.size(), e);
+                }
+            }));
+        } finally {
+            groups.values().forEach(byExpire -> byExpire.values().forEach(values -> values.keySet().forEach(key -> {
+                inFlight.remove(key);
+                if (cancelled.remove(key)) {
+                    try {
+                        redisUtil.remove(key);
+                    } catch (Exception e) {
+                        log.error("删除已取消的缓存失败, key: {}", key, e);
+                    }
+                }
+            })));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        flush();
+    }
+
+    @AllArgsConstructor
+    private static class PendingWrite {
+
+        private final Object value;
+
+        private final String cache;
+
+        private final int expire;
+    }
+}
@@ -0,0 +1,175 @@
+package com.yizhishang.redis.counter;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.util.RedisUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片计数器, 适用于浏览量、接口调用量等高频近似计数
+ * <pre>
+ * 1. 写: 每次递增随机落到 counter:name:0 ~ counter:name:(shards-1) 其中一个子key, 避免单key热点
+ * 2. 缓冲写: incrBuffered 只累加到本地, 每 spring.redis.counter.flushInterval 毫秒合并为一次INCRBY管道写入
+ * 3. 读: 一次MGET读取所有子key求和, 不包含本地尚未flush的增量
+ * 子key不带hash tag, 集群模式下分散到不同节点(MGET由客户端按slot拆分)
+ * 分片数修改后旧分片不再被读取, 只能调大不能调小
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class ShardedCounterService implements SmartInitializingSingleton {
+
+    private static final String KEY_PREFIX = "counter:";
+
+    /**
+     * 每个计数器的分片数
+     */
+    @Value("${spring.redis.counter.shards:16}")
+    private int shards;
+
+    /**
+     * 本地缓冲flush间隔(毫秒)
+     */
+    @Value("${spring.redis.counter.flushInterval:1000}")
+    private long flushInterval;
+
+    private final RedisUtil redisUtil;
+
+    /**
+     * 本地缓冲: merge累加, flush时remove取出, 两者都是单key原子操作, 不会丢失增量; 取出后不再占用内存
+     */
+    private final Map<String, Long> buffer = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("counter-flush-%d").setDaemon(true).build());
+
+    public ShardedCounterService(RedisUtil redisUtil) {
+        this.redisUtil = redisUtil;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (shards <= 0) {
+            throw new RedisException("计数器分片数必须大于0");
+        }
+        executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 递增 1
+     *
+     * @param name 计数器名称
+     */
+    public void incr(String name) {
+        incr(name, 1);
+    }
+
+    /**
+     * 递增, 直接写入随机分片
+     *
+     * @param name  计数器名称
+     * @param delta 递增因子(可为负数)
+     */
+    public void incr(String name, long delta) {
+        if (delta >= 0) {
+            redisUtil.incr(randomShard(name), delta);
+        } else {
+            redisUtil.decr(randomShard(name), -delta);
+        }
+    }
+
+    /**
+     * 递增, 只累加到本地缓冲, 定时批量写入; 进程异常退出时会丢失未flush的增量
+     *
+     * @param name  计数器名称
+     * @param delta 递增因子(可为负数)
+     */
+    public void incrBuffered(String name, long delta) {
+        buffer.merge(name, delta, Long::sum);
+    }
+
+    /**
+     * 读取计数(一次MGET汇总所有分片)
+     *
+     * @param name 计数器名称
+     * @return 计数
+     */
+    public long get(String name) {
+        long sum = 0;
+        for (Object value : redisUtil.mget(shardKeys(name))) {
+            if (value instanceof Number) {
+                sum += ((Number) value).longValue();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 删除计数器所有分片
+     *
+     * @param name 计数器名称
+     */
+    public void reset(String name) {
+        buffer.remove(name);
+        redisUtil.remove(shardKeys(name).toArray(new String[0]));
+    }
+
+    /**
+     * 将本地缓冲的增量合并写入redis(一次INCRBY管道), 失败时增量退回缓冲
+     */
+    public void flush() {
+        Map<String, Long> deltas = new HashMap<>(buffer.size());
+        Map<String, String> names = new HashMap<>(buffer.size());
+        for (String name : buffer.keySet()) {
+            Long delta = buffer.remove(name);
+            if (delta != null && delta != 0) {
+                String key = randomShard(name);
+                deltas.put(key, delta);
+                names.put(key, name);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            redisUtil.incrAll(deltas);
+        } catch (Exception e) {
+            log.error("计数器flush失败, 共{}个, 下次重试", deltas.size(), e);
+            deltas.forEach((key, delta) -> incrBuffered(names.get(key), delta));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        flush();
+    }
+
+    private String randomShard(String name) {
+        return KEY_PREFIX + name + ":" + ThreadLocalRandom.current().nextInt(shards);
+    }
+
+    private List<String> shardKeys(String name) {
+        List<String> keys = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            keys.add(KEY_PREFIX + name + ":" + i);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,278 @@
+package com.yizhishang.redis.hotkey;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.yizhishang.redis.RedisException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 热点key探测与本地缓存
+ * <pre>
+ * 1. 采样: RedisUtil.get/hget/hasKey(含 @RedisCache 的读取)按 sampleRate 采样, 用 {@link LossyCounter} 统计(每秒淘汰一次低频key)
+ * 2. 探测: 每 window 秒估算访问量(采样计数 / sampleRate), 超过 threshold 的key通过pub/sub广播给所有节点
+ * 3. 提升: 收到广播的节点将该key标记为热点 localTtl 秒, 期间读取走本地缓存(最多 localTtl 秒不一致)
+ * 4. 失效: 通过RedisUtil写入/删除热点key时广播失效, 各节点清除本地缓存
+ * 非热点key照常访问redis, 不受影响
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class HotKeyService implements SmartInitializingSingleton {
+
+    private static final String CHANNEL = "hotkey:channel";
+
+    private static final String PROMOTE = "P|";
+
+    private static final String INVALIDATE = "I|";
+
+    /**
+     * hash的本地缓存key: key#item
+     */
+    private static final String ITEM_SEPARATOR = "#";
+
+    @Value("${spring.redis.hotKey.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 采样率
+     */
+    @Value("${spring.redis.hotKey.sampleRate:0.1}")
+    private double sampleRate;
+
+    /**
+     * 统计窗口(秒)
+     */
+    @Value("${spring.redis.hotKey.window:5}")
+    private long window;
+
+    /**
+     * 窗口内访问量达到多少视为热点
+     */
+    @Value("${spring.redis.hotKey.threshold:1000}")
+    private long threshold;
+
+    /**
+     * 本地缓存时间(秒)
+     */
+    @Value("${spring.redis.hotKey.localTtl:10}")
+    private long localTtl;
+
+    /**
+     * 本地最多缓存多少个值
+     */
+    @Value("${spring.redis.hotKey.maxLocalKeys:1000}")
+    private long maxLocalKeys;
+
+    /**
+     * Lossy Counting误差
+     */
+    @Value("${spring.redis.hotKey.epsilon:0.001}")
+    private double epsilon;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("hotkey-detect-%d").setDaemon(true).build());
+
+    private LossyCounter counter;
+
+    /**
+     * 已提升的热点key
+     */
+    private Cache<String, Boolean> hotKeys;
+
+    /**
+     * 热点key的本地值, Optional.empty() 表示redis中为null
+     */
+    private Cache<String, Optional<Object>> values;
+
+    public HotKeyService(StringRedisTemplate stringRedisTemplate, RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+    }
+
+    @PostConstruct
+    public void init() {
+        counter = new LossyCounter(epsilon);
+        hotKeys = CacheBuilder.newBuilder().expireAfterWrite(localTtl, TimeUnit.SECONDS).maximumSize(maxLocalKeys).build();
+        values = CacheBuilder.newBuilder().expireAfterWrite(localTtl, TimeUnit.SECONDS).maximumSize(maxLocalKeys).build();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        redisMessageListenerContainer.addMessageListener((message, pattern) ->
+                onMessage(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+        executor.scheduleWithFixedDelay(this::detect, window, window, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(this::prune, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 读取字符串类型key, 热点key走本地缓存
+     *
+     * @param key    键
+     * @param loader 从redis读取
+     * @return 值
+     */
+    public Object get(String key, Supplier<Object> loader) {
+        return get(key, key, loader);
+    }
+
+    /**
+     * 读取hash的项, 热点hash走本地缓存
+     *
+     * @param key    键
+     * @param item   项
+     * @param loader 从redis读取
+     * @return 值
+     */
+    public Object hget(String key, String item, Supplier<Object> loader) {
+        return get(key, key + ITEM_SEPARATOR + item, loader);
+    }
+
+    /**
+     * 判断key是否存在, 热点key已有本地值时不访问redis
+     *
+     * @param key    键
+     * @param loader 从redis判断
+     * @return true-存在
+     */
+    public Boolean hasKey(String key, Supplier<Boolean> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        record(key);
+        if (hotKeys.getIfPresent(key) != null) {
+            Optional<Object> value = values.getIfPresent(key);
+            if (value != null && value.isPresent()) {
+                return true;
+            }
+        }
+        return loader.get();
+    }
+
+    /**
+     * 写入/删除后调用, 热点key广播失效
+     *
+     * @param key 键
+     */
+    public void invalidate(String key) {
+        if (!enabled || hotKeys.getIfPresent(key) == null) {
+            return;
+        }
+        evictLocal(key);
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, INVALIDATE + key);
+        } catch (Exception e) {
+            log.error("热点key[{}]失效广播失败", key, e);
+        }
+    }
+
+    /**
+     * 是否为热点key
+     *
+     * @param key 键
+     * @return true-热点
+     */
+    public boolean isHot(String key) {
+        return enabled && hotKeys.getIfPresent(key) != null;
+    }
+
+    private Object get(String key, String localKey, Supplier<Object> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        record(key);
+        if (hotKeys.getIfPresent(key) == null) {
+            return loader.get();
+        }
+        try {
+            return values.get(localKey, () -> Optional.ofNullable(loader.get())).orElse(null);
+        } catch (UncheckedExecutionException e) {
+            // loader抛出的RuntimeException(如熔断的RedisException)原样抛出, 调用方按原有异常处理降级
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+        } catch (ExecutionException e) {
+            throw new RedisException("热点key本地缓存加载失败", e.getCause());
+        }
+    }
+
+    private void record(String key) {
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            counter.add(key);
+        }
+    }
+
+    /**
+     * 统计窗口结束: 广播热点key(仍为热点的key会续期)
+     */
+    private void detect() {
+        try {
+            Map<String, Long> frequent = counter.frequent((long) Math.ceil(threshold * sampleRate));
+            counter.reset();
+            for (Map.Entry<String, Long> entry : frequent.entrySet()) {
+                log.debug("热点key: {}, 估算访问量: {}", entry.getKey(), (long) (entry.getValue() / sampleRate));
+                stringRedisTemplate.convertAndSend(CHANNEL, PROMOTE + entry.getKey());
+            }
+        } catch (Exception e) {
+            log.error("热点key探测失败", e);
+        }
+    }
+
+    private void prune() {
+        try {
+            counter.prune();
+        } catch (Exception e) {
+            log.error("热点key计数淘汰失败", e);
+        }
+    }
+
+    private void onMessage(String body) {
+        String key = body.substring(PROMOTE.length());
+        if (body.startsWith(PROMOTE)) {
+            if (hotKeys.getIfPresent(key) == null) {
+                log.info("热点key提升为本地缓存: {}", key);
+            }
+            hotKeys.put(key, Boolean.TRUE);
+        } else if (body.startsWith(INVALIDATE)) {
+            evictLocal(key);
+        }
+    }
+
+    private void evictLocal(String key) {
+        values.invalidate(key);
+        String prefix = key + ITEM_SEPARATOR;
+        values.asMap().keySet().removeIf(localKey -> localKey.startsWith(prefix));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,102 @@
+package com.yizhishang.redis.hotkey;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lossy Counting 频率估计(Manku-Motwani), 内存只与 1/epsilon 相关, 与key总数无关
+ * <pre>
+ * 每 1/epsilon 次访问为一个桶, 已结束的桶淘汰 count + delta &lt;= 桶序号 的低频key
+ * 计数偏小最多 epsilon * N, 频率超过 epsilon * N 的key一定保留
+ *
+ * 并发: add 不加锁(计数用 LongAdder 分段累加), 淘汰由 {@link #prune()} 在后台定时执行,
+ * 两次淘汰之间内存随访问量增长
+ * </pre>
+ *
+ * @author yizhishang
+ */
+public class LossyCounter {
+
+    private final long bucketWidth;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * 已淘汰到的桶序号
+     */
+    private volatile long pruned;
+
+    public LossyCounter(double epsilon) {
+        this.bucketWidth = (long) Math.ceil(1 / epsilon);
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key 键
+     */
+    public void add(String key) {
+        total.increment();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = entries.computeIfAbsent(key, k -> new Entry(total.sum() / bucketWidth));
+        }
+        entry.count.increment();
+    }
+
+    /**
+     * 淘汰已结束桶中的低频key, 由后台线程定时调用
+     */
+    public void prune() {
+        long bucket = total.sum() / bucketWidth;
+        if (bucket <= pruned) {
+            return;
+        }
+        entries.values().removeIf(entry -> entry.count.sum() + entry.delta <= bucket);
+        pruned = bucket;
+    }
+
+    /**
+     * 计数不小于minCount的key
+     *
+     * @param minCount 最小计数
+     * @return key -> 计数
+     */
+    public Map<String, Long> frequent(long minCount) {
+        Map<String, Long> result = new HashMap<>();
+        entries.forEach((key, entry) -> {
+            long count = entry.count.sum();
+            if (count >= minCount) {
+                result.put(key, count);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 清空, 开始新的统计窗口
+     */
+    public void reset() {
+        entries.clear();
+        total.reset();
+        pruned = 0;
+    }
+
+    /**
+     * 计数与最大误差
+     */
+    private static final class Entry {
+
+        private final LongAdder count = new LongAdder();
+
+        private final long delta;
+
+        private Entry(long delta) {
+            this.delta = delta;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.yizhishang.redis.idempotent;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 幂等记录: 处理中时result为null
+ *
+ * @author yizhishang
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotentRecord {
+
+    private boolean done;
+
+    private Object result;
+}
@@ -0,0 +1,46 @@
+package com.yizhishang.redis.idempotent.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 幂等(防重复提交): 同一key首次请求执行方法并保存结果, 有效期内的重复请求直接返回保存的结果, 不再执行方法
+ * <pre>
+ * &#64;Idempotent(key = "pay:#order.orderNo")
+ * public PayResult pay(Order order) {...}
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@Documented
+public @interface Idempotent {
+
+    /**
+     * 幂等key, 格式同 @RedisCache(key), 如 pay:#order.orderNo
+     *
+     * @return key值
+     */
+    String key();
+
+    /**
+     * Key的prefix
+     *
+     * @return String
+     */
+    String prefix() default "idempotent";
+
+    /**
+     * 处理中标记的超时时间(毫秒), 超时后视为处理失败, 允许重新执行
+     *
+     * @return long
+     */
+    long timeout() default 30000;
+
+    /**
+     * 处理结果保存多少秒
+     *
+     * @return int
+     */
+    int expire() default 3600;
+}
@@ -0,0 +1,72 @@
+package com.yizhishang.redis.idempotent.aspect;
+
+import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.idempotent.IdempotentRecord;
+import com.yizhishang.redis.idempotent.annotation.Idempotent;
+import com.yizhishang.redis.util.Consts;
+import com.yizhishang.redis.util.ExplainUtil;
+import com.yizhishang.redis.util.RedisUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 幂等(防重复提交)
+ * <pre>
+ * 1. SET NX PX 写入处理中标记, 成功则执行方法, 完成后将结果覆盖保存 expire 秒
+ * 2. 方法抛出异常时删除标记, 允许客户端重试
+ * 3. 标记已存在: 已完成则直接返回保存的结果; 处理中则抛出 {@link RedisException}
+ * 4. 结果保存失败时重试一次, 仍失败则记录错误日志(方法已执行, 不抛出异常)
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Aspect
+@Service
+public class IdempotentAspect {
+
+    private final RedisUtil redisUtil;
+
+    public IdempotentAspect(RedisUtil redisUtil) {
+        this.redisUtil = redisUtil;
+    }
+
+    @Around("@annotation(idempotent)")
+    public Object around(ProceedingJoinPoint joinPoint, Idempotent idempotent) throws Throwable {
+        String key = idempotent.prefix() + ExplainUtil.explainKey(idempotent.key(), joinPoint);
+        if (!redisUtil.setIfAbsent(key, new IdempotentRecord(false, null), idempotent.timeout(), TimeUnit.MILLISECONDS)) {
+            Object value = redisUtil.get(key);
+            if (value instanceof IdempotentRecord) {
+                IdempotentRecord record = (IdempotentRecord) value;
+                if (record.isDone()) {
+                    log.debug("重复请求, 返回已保存的结果, key: {}", key);
+                    return record.getResult();
+                }
+                throw new RedisException(Consts.DUPLICATE_REQUEST);
+            }
+            // 标记在两次访问之间过期, 重新抢占
+            if (!redisUtil.setIfAbsent(key, new IdempotentRecord(false, null), idempotent.timeout(), TimeUnit.MILLISECONDS)) {
+                throw new RedisException(Consts.DUPLICATE_REQUEST);
+            }
+        }
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            redisUtil.remove(key);
+            throw e;
+        }
+        IdempotentRecord done = new IdempotentRecord(true, result);
+        if (!redisUtil.set(key, done, idempotent.expire()) && !redisUtil.set(key, done, idempotent.expire())) {
+            // 方法已执行成功, 不能再抛出异常让客户端重试; 处理中标记过期后重复请求会再次执行
+            log.error("幂等结果保存失败, 处理中标记将在{}ms后过期, 之后的重复请求会再次执行, key: {}", idempotent.timeout(), key);
+        }
+        return result;
+    }
+}
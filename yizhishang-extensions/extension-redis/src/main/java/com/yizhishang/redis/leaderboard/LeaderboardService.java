@@ -0,0 +1,278 @@
+package com.yizhishang.redis.leaderboard;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.util.RedisKeyUtil;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 排行榜
+ * <pre>
+ * 每个排行榜的key均带hash tag, 集群模式下落在同一slot:
+ * board:{name}             总榜
+ * board:{name}:桶序号       时间桶, 每 bucketMinutes 分钟一个, 保留 retentionBuckets 个
+ * board:{name}:window:分钟  时间窗口合并结果(ZUNIONSTORE), 短期缓存
+ *
+ * 1. 写: incr 直接写入(一次管道写总榜和当前桶); incrBuffered 只累加到本地, 每 flushInterval 毫秒合并为一次ZINCRBY管道
+ * 2. 读: top 结果在本地缓存 refreshInterval 秒, 期间不访问redis
+ * 缓冲的分数在flush时计入当时的时间桶, 桶边界附近会有最多 flushInterval 的偏差
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class LeaderboardService implements SmartInitializingSingleton {
+
+    private static final String KEY_PREFIX = "board:";
+
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+
+    /**
+     * 时间桶长度(分钟)
+     */
+    @Value("${spring.redis.leaderboard.bucketMinutes:60}")
+    private long bucketMinutes;
+
+    /**
+     * 时间桶保留个数
+     */
+    @Value("${spring.redis.leaderboard.retentionBuckets:168}")
+    private int retentionBuckets;
+
+    /**
+     * 本地缓冲flush间隔(毫秒)
+     */
+    @Value("${spring.redis.leaderboard.flushInterval:1000}")
+    private long flushInterval;
+
+    /**
+     * top-N快照刷新间隔(秒)
+     */
+    @Value("${spring.redis.leaderboard.refreshInterval:5}")
+    private long refreshInterval;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本地缓冲: 成员分数merge累加, flush时remove取出, 两者都是单key原子操作, 不会丢失分数; 取出后不再占用内存
+     */
+    private final Map<String, Map<String, Double>> buffer = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("leaderboard-flush-%d").setDaemon(true).build());
+
+    private Cache<SnapshotKey, List<ZSetOperations.TypedTuple<String>>> snapshots;
+
+    public LeaderboardService(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        snapshots = CacheBuilder.newBuilder()
+                .expireAfterWrite(refreshInterval, TimeUnit.SECONDS)
+                .maximumSize(1000)
+                .build();
+        executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 增加分数, 直接写入总榜和当前时间桶
+     *
+     * @param board  排行榜名称
+     * @param member 成员
+     * @param score  分数
+     */
+    public void incr(String board, String member, double score) {
+        Map<String, Map<String, Double>> scores = Collections.singletonMap(board, Collections.singletonMap(member, score));
+        write(scores, currentBucket());
+    }
+
+    /**
+     * 增加分数, 只累加到本地缓冲, 定时批量写入; 进程异常退出时会丢失未flush的分数
+     *
+     * @param board  排行榜名称
+     * @param member 成员
+     * @param score  分数
+     */
+    public void incrBuffered(String board, String member, double score) {
+        buffer.computeIfAbsent(board, k -> new ConcurrentHashMap<>()).merge(member, score, Double::sum);
+    }
+
+    /**
+     * 总榜前N名(快照)
+     *
+     * @param board 排行榜名称
+     * @param n     数量
+     * @return 按分数从高到低
+     */
+    public List<ZSetOperations.TypedTuple<String>> top(String board, int n) {
+        return snapshot(new SnapshotKey(board, 0, n), () -> range(getKey(board), n));
+    }
+
+    /**
+     * 最近一段时间的前N名(快照), 由时间桶合并而来, 精度为一个桶
+     *
+     * @param board  排行榜名称
+     * @param window 时间窗口, 不超过 bucketMinutes * retentionBuckets
+     * @param n      数量
+     * @return 按分数从高到低
+     */
+    public List<ZSetOperations.TypedTuple<String>> top(String board, Duration window, int n) {
+        long buckets = Math.max(1, (window.toMinutes() + bucketMinutes - 1) / bucketMinutes);
+        if (buckets > retentionBuckets) {
+            throw new RedisException("时间窗口超过排行榜保留时长");
+        }
+        return snapshot(new SnapshotKey(board, buckets, n), () -> range(union(board, (int) buckets), n));
+    }
+
+    /**
+     * 总榜分数
+     *
+     * @param board  排行榜名称
+     * @param member 成员
+     * @return 分数, 不在榜上时为null
+     */
+    public Double score(String board, String member) {
+        return stringRedisTemplate.opsForZSet().score(getKey(board), member);
+    }
+
+    /**
+     * 总榜排名
+     *
+     * @param board  排行榜名称
+     * @param member 成员
+     * @return 排名(从0开始), 不在榜上时为null
+     */
+    public Long rank(String board, String member) {
+        return stringRedisTemplate.opsForZSet().reverseRank(getKey(board), member);
+    }
+
+    /**
+     * 将本地缓冲的分数合并写入redis(一次管道), 失败时分数退回缓冲
+     */
+    public void flush() {
+        Map<String, Map<String, Double>> scores = new HashMap<>(buffer.size());
+        buffer.forEach((board, members) -> {
+            for (String member : members.keySet()) {
+                Double score = members.remove(member);
+                if (score != null && score != 0) {
+                    scores.computeIfAbsent(board, k -> new HashMap<>()).put(member, score);
+                }
+            }
+        });
+        if (scores.isEmpty()) {
+            return;
+        }
+        try {
+            write(scores, currentBucket());
+        } catch (Exception e) {
+            log.error("排行榜flush失败, 下次重试", e);
+            scores.forEach((board, members) -> members.forEach((member, score) -> incrBuffered(board, member, score)));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        flush();
+    }
+
+    /**
+     * ZINCRBY管道: 每个成员写总榜和当前桶, 每个桶刷新过期时间
+     */
+    private void write(Map<String, Map<String, Double>> scores, long bucket) {
+        long ttl = TimeUnit.MINUTES.toSeconds(bucketMinutes * (retentionBuckets + 1));
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            scores.forEach((board, members) -> {
+                byte[] totalKey = rawKey(getKey(board));
+                byte[] bucketKey = rawKey(getKey(board, bucket));
+                members.forEach((member, score) -> {
+                    byte[] rawMember = rawKey(member);
+                    connection.zIncrBy(totalKey, score, rawMember);
+                    connection.zIncrBy(bucketKey, score, rawMember);
+                });
+                connection.expire(bucketKey, ttl);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * ZUNIONSTORE合并最近buckets个时间桶, 结果保留refreshInterval秒供其他节点复用
+     */
+    private String union(String board, int buckets) {
+        long current = currentBucket();
+        String destKey = getKey(board) + ":window:" + buckets + ":" + current;
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(destKey))) {
+            return destKey;
+        }
+        List<String> keys = new ArrayList<>(buckets);
+        for (int i = 1; i < buckets; i++) {
+            keys.add(getKey(board, current - i));
+        }
+        stringRedisTemplate.opsForZSet().unionAndStore(getKey(board, current), keys, destKey);
+        stringRedisTemplate.expire(destKey, refreshInterval, TimeUnit.SECONDS);
+        return destKey;
+    }
+
+    private List<ZSetOperations.TypedTuple<String>> range(String key, int n) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet().reverseRangeWithScores(key, 0, n - 1L);
+        return tuples == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(tuples));
+    }
+
+    private List<ZSetOperations.TypedTuple<String>> snapshot(SnapshotKey cacheKey, Callable<List<ZSetOperations.TypedTuple<String>>> loader) {
+        try {
+            return snapshots.get(cacheKey, loader);
+        } catch (ExecutionException e) {
+            throw new RedisException("排行榜读取失败", e.getCause());
+        }
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / TimeUnit.MINUTES.toMillis(bucketMinutes);
+    }
+
+    private static String getKey(String board) {
+        return RedisKeyUtil.tagged(KEY_PREFIX, board);
+    }
+
+    private static String getKey(String board, long bucket) {
+        return getKey(board) + ":" + bucket;
+    }
+
+    private static byte[] rawKey(String key) {
+        return STRING_SERIALIZER.serialize(key);
+    }
+
+    /**
+     * 快照缓存key, buckets为0表示总榜
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class SnapshotKey {
+
+        private final String board;
+
+        private final long buckets;
+
+        private final int n;
+    }
+}
@@ -0,0 +1,76 @@
+package com.yizhishang.redis.limit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.RateLimiter;
+import com.yizhishang.redis.RedisException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机限流, redis熔断时代替分布式限流(限额按单机计算)
+ *
+ * @author yizhishang
+ */
+@Component
+public class LocalLimiter {
+
+    private final Cache<String, Window> windows = CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.HOURS).build();
+
+    private final Cache<String, RateLimiter> rateLimiters = CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.HOURS).build();
+
+    /**
+     * 固定窗口计数, 对应 @Limit
+     *
+     * @param key    键
+     * @param limit  窗口内最多请求数
+     * @param expire 窗口长度(秒)
+     * @return true-通过
+     */
+    public boolean tryAcquire(String key, int limit, int expire) {
+        return get(windows, key, Window::new).tryAcquire(limit, TimeUnit.SECONDS.toMillis(expire));
+    }
+
+    /**
+     * 令牌桶, 对应 @RateLimit
+     *
+     * @param key     键
+     * @param rate    每秒放入的令牌数量
+     * @param permits 请求令牌数量
+     * @return true-通过
+     */
+    public boolean tryAcquireRate(String key, int rate, int permits) {
+        return get(rateLimiters, key + ":" + rate, () -> RateLimiter.create(rate)).tryAcquire(permits);
+    }
+
+    private static <T> T get(Cache<String, T> cache, String key, Callable<T> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException e) {
+            throw new RedisException("本机限流器创建失败", e.getCause());
+        }
+    }
+
+    private static class Window {
+
+        private long start;
+
+        private int count;
+
+        synchronized boolean tryAcquire(int limit, long length) {
+            long now = System.currentTimeMillis();
+            if (now - start >= length) {
+                start = now;
+                count = 0;
+            }
+            if (count >= limit) {
+                return false;
+            }
+            count++;
+            return true;
+        }
+    }
+}
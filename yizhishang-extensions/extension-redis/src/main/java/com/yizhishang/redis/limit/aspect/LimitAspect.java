@@ -2,9 +2,12 @@ package com.yizhishang.redis.limit.aspect;
 
 import com.google.common.collect.ImmutableList;
 import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.breaker.RedisCircuitBreaker;
 import com.yizhishang.redis.limit.LimitType;
+import com.yizhishang.redis.limit.LocalLimiter;
 import com.yizhishang.redis.limit.annotation.Limit;
 import com.yizhishang.redis.util.Consts;
+import com.yizhishang.redis.util.RedisKeyUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -38,10 +41,16 @@ public class LimitAspect {
 
     private final DefaultRedisScript<Long> redisScript;
 
+    private final RedisCircuitBreaker circuitBreaker;
+
+    private final LocalLimiter localLimiter;
+
     @Autowired
-    public LimitAspect(RedisTemplate<String, Object> redisTemplate) {
+    public LimitAspect(RedisTemplate<String, Object> redisTemplate, RedisCircuitBreaker circuitBreaker, LocalLimiter localLimiter) {
         log.debug("分布式接口限流初始化");
         this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.localLimiter = localLimiter;
         redisScript = new DefaultRedisScript<>();
         redisScript.setResultType(Long.class);
         redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("rate-count-limit.lua")));
@@ -66,13 +75,20 @@ public class LimitAspect {
             default:
                 key = StringUtils.upperCase(method.getName());
         }
-        ImmutableList<String> keys = ImmutableList.of(StringUtils.join(limitAnnotation.prefix(), key));
+        ImmutableList<String> keys = ImmutableList.of(RedisKeyUtil.tagged(limitAnnotation.prefix(), key));
 
         int expire = limitAnnotation.expire();
         int limit = limitAnnotation.limit();
-        Long count = redisTemplate.execute(redisScript, keys, limit, expire);
+        boolean passed;
+        try {
+            passed = Consts.SUCCESS.equals(circuitBreaker.execute(() -> redisTemplate.execute(redisScript, keys, limit, expire)));
+        } catch (RuntimeException e) {
+            // redis不可用时降级为本机限流
+            log.debug("{}: redis不可用, 使用本机限流", name, e);
+            passed = localLimiter.tryAcquire(keys.get(0), limit, expire);
+        }
 
-        if (Consts.SUCCESS.equals(count)) {
+        if (passed) {
             try {
                 return pjp.proceed();
             } catch (Throwable throwable) {
@@ -1,6 +1,8 @@
 package com.yizhishang.redis.limit.aspect;
 
 import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.breaker.RedisCircuitBreaker;
+import com.yizhishang.redis.limit.LocalLimiter;
 import com.yizhishang.redis.limit.annotation.RateLimit;
 import com.yizhishang.redis.limit.ratelimit.RateLimitService;
 import com.yizhishang.redis.limit.ratelimit.RateToken;
@@ -29,9 +31,15 @@ public class RateLimitAspect {
 
     private final RateLimitService rateLimitService;
 
+    private final RedisCircuitBreaker circuitBreaker;
+
+    private final LocalLimiter localLimiter;
+
     @Autowired
-    public RateLimitAspect(RateLimitService rateLimitService) {
+    public RateLimitAspect(RateLimitService rateLimitService, RedisCircuitBreaker circuitBreaker, LocalLimiter localLimiter) {
         this.rateLimitService = rateLimitService;
+        this.circuitBreaker = circuitBreaker;
+        this.localLimiter = localLimiter;
     }
 
     /**
@@ -42,7 +50,14 @@ public class RateLimitAspect {
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         Method method = signature.getMethod();
         RateLimit rateLimit = method.getAnnotation(RateLimit.class);
-        RateToken acquire = rateLimitService.acquireToken(rateLimit.key(), rateLimit.expectPermits());
+        RateToken acquire;
+        try {
+            acquire = circuitBreaker.execute(() -> rateLimitService.acquireToken(rateLimit.key(), rateLimit.expectPermits()));
+        } catch (RuntimeException e) {
+            // redis不可用时降级为本机令牌桶, 每秒放入rate个令牌
+            log.debug("{}: redis不可用, 使用本机限流", rateLimit.name(), e);
+            acquire = localLimiter.tryAcquireRate(rateLimit.key(), rateLimit.rate(), rateLimit.expectPermits()) ? RateToken.SUCCESS : RateToken.FAILED;
+        }
 
         if (acquire.isSuccess()) {
             try {
@@ -1,6 +1,7 @@
 package com.yizhishang.redis.limit.ratelimit;
 
 import com.yizhishang.redis.util.Consts;
+import com.yizhishang.redis.util.RedisKeyUtil;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisServerCommands;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -105,7 +106,7 @@ public class RateLimitService {
     }
 
     private static String getKey(String key) {
-        return Consts.RATE_LIMIT_KEY + key;
+        return RedisKeyUtil.tagged(Consts.RATE_LIMIT_KEY, key);
     }
 
 }
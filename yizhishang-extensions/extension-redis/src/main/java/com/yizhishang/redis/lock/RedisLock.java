@@ -1,8 +1,11 @@
 package com.yizhishang.redis.lock;
 
+import com.yizhishang.redis.breaker.RedisCircuitBreaker;
 import com.yizhishang.redis.util.Consts;
+import com.yizhishang.redis.util.RedisKeyUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
@@ -57,6 +60,8 @@ public class RedisLock {
 
     private final RedisTemplate<String, Object> redisTemplate;
 
+    private final RedisCircuitBreaker circuitBreaker;
+
     private static final String LOCK_PREFIX = "lock.";
     private static final String LOCK_STRING = "if redis.call('setnx',KEYS[1],ARGV[1]) == 1 then redis.call('expire',KEYS[1],ARGV[2]) return 1 else return 0 end";
     private static final String RELEASE_LOCK_STRING = "if redis.call('get',KEYS[1]) == ARGV[1] then return redis.call('del',KEYS[1]) else return 0 end";
@@ -66,9 +71,10 @@ public class RedisLock {
     private static ThreadLocal<String> local = new ThreadLocal<>();
 
     @Autowired
-    public RedisLock(RedisTemplate<String, Object> redisTemplate) {
+    public RedisLock(@Qualifier("lockRedisTemplate") RedisTemplate<String, Object> redisTemplate, RedisCircuitBreaker circuitBreaker) {
         log.debug("RedisLock初始化");
         this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
         redisLockScript = new DefaultRedisScript<>(LOCK_STRING);
         releaseScript = new DefaultRedisScript<>(RELEASE_LOCK_STRING);
     }
@@ -79,10 +85,11 @@ public class RedisLock {
      * @param key        锁
      * @param expireTime 超期时间，多少秒后这把锁自动释放：单位秒
      * @return 返回true表示拿到锁
+     * @throws com.yizhishang.redis.RedisException redis熔断中(快速失败)
      */
     public boolean tryLock(String key, int expireTime) {
         String uniqueId = UUID.randomUUID().toString();
-        Long count = redisTemplate.execute(redisLockScript, Collections.singletonList(LOCK_PREFIX + key), uniqueId, expireTime);
+        Long count = circuitBreaker.execute(() -> redisTemplate.execute(redisLockScript, Collections.singletonList(getKey(key)), uniqueId, expireTime));
         //判断是否成功
         if (Consts.SUCCESS.equals(count)) {
             local.set(uniqueId);
@@ -98,11 +105,18 @@ public class RedisLock {
      * @return 返回true表示释放锁成功
      */
     public boolean releaseLock(String key) {
-        Long count = redisTemplate.execute(releaseScript, Collections.singletonList(LOCK_PREFIX + key), local.get());
+        Long count = circuitBreaker.execute(() -> redisTemplate.execute(releaseScript, Collections.singletonList(getKey(key)), local.get()));
         //判断是否成功
         if (Consts.SUCCESS.equals(count)) {
             local.remove();
         }
         return false;
     }
+
+    /**
+     * 锁key: lock.{key}, 集群模式下与业务key(带hash tag时)落在同一slot
+     */
+    private static String getKey(String key) {
+        return RedisKeyUtil.tagged(LOCK_PREFIX, key);
+    }
 }
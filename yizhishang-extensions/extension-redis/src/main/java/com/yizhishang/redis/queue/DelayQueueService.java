@@ -0,0 +1,318 @@
+package com.yizhishang.redis.queue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.util.Consts;
+import com.yizhishang.redis.util.RedisKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 基于zset的延迟队列
+ * <pre>
+ * 每个主题的key均带hash tag, 集群模式下落在同一slot:
+ * delay:{topic}            待执行zset, score为到期时间
+ * delay:{topic}:task       任务内容hash
+ * delay:{topic}:processing 执行中zset, score为可见性超时截止时间
+ * delay:{topic}:attempts   执行次数hash
+ * delay:{topic}:dead       死信list, 元素为 id:内容
+ *
+ * 1. offer: 写入任务内容并按到期时间加入待执行zset
+ * 2. 拉取: 每 pollInterval 毫秒用lua脚本批量领取到期任务, 原子地移入执行中zset(超时未确认的任务会被放回重新领取)
+ * 3. 执行: 交给 {@link DelayTaskHandler} 在有界线程池中执行, 线程池满时不再领取
+ * 4. 失败: 按 retryDelay * 2^(次数-1) 退避重试, 超过最大重试次数转入死信
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class DelayQueueService implements SmartInitializingSingleton {
+
+    private static final String KEY_PREFIX = "delay:";
+
+    private static final String CANCEL_STRING = "if redis.call('ZREM',KEYS[1],ARGV[1]) == 1 then redis.call('HDEL',KEYS[2],ARGV[1]) redis.call('HDEL',KEYS[3],ARGV[1]) return 1 else return 0 end";
+
+    /**
+     * 退避指数上限
+     */
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    /**
+     * 拉取间隔(毫秒)
+     */
+    @Value("${spring.redis.delayQueue.pollInterval:1000}")
+    private long pollInterval;
+
+    /**
+     * 每批最多领取数量
+     */
+    @Value("${spring.redis.delayQueue.batchSize:100}")
+    private int batchSize;
+
+    /**
+     * 执行线程数
+     */
+    @Value("${spring.redis.delayQueue.workers:8}")
+    private int workers;
+
+    /**
+     * 可见性超时(秒), 超过该时间未确认的任务会被重新领取
+     */
+    @Value("${spring.redis.delayQueue.visibilityTimeout:60}")
+    private long visibilityTimeout;
+
+    /**
+     * 默认最大重试次数
+     */
+    @Value("${spring.redis.delayQueue.maxRetries:3}")
+    private int maxRetries;
+
+    /**
+     * 首次重试延迟(秒)
+     */
+    @Value("${spring.redis.delayQueue.retryDelay:10}")
+    private long retryDelay;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final ObjectProvider<DelayTaskHandler> handlerProvider;
+
+    private final Map<String, DelayTaskHandler> handlers = new HashMap<>();
+
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> claimScript;
+
+    private final DefaultRedisScript<Long> offerScript;
+
+    private final DefaultRedisScript<Long> ackScript;
+
+    private final DefaultRedisScript<Long> nackScript;
+
+    private final DefaultRedisScript<Long> cancelScript;
+
+    private ScheduledExecutorService poller;
+
+    private ExecutorService executor;
+
+    /**
+     * 执行中+排队中的任务数上限
+     */
+    private Semaphore permits;
+
+    public DelayQueueService(StringRedisTemplate stringRedisTemplate, ObjectProvider<DelayTaskHandler> handlerProvider) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.handlerProvider = handlerProvider;
+
+        claimScript = new DefaultRedisScript<>();
+        claimScript.setResultType(List.class);
+        claimScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("delayQueue-claim.lua")));
+        offerScript = longScript("delayQueue-offer.lua");
+        ackScript = longScript("delayQueue-ack.lua");
+        nackScript = longScript("delayQueue-nack.lua");
+        cancelScript = new DefaultRedisScript<>(CANCEL_STRING, Long.class);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        handlerProvider.orderedStream().forEach(handler -> {
+            if (handlers.putIfAbsent(handler.topic(), handler) != null) {
+                throw new RedisException("延迟队列主题重复: " + handler.topic());
+            }
+        });
+        if (handlers.isEmpty()) {
+            return;
+        }
+        permits = new Semaphore(workers * 2);
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("delay-worker-%d").setDaemon(true).build());
+        poller = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("delay-poller-%d").setDaemon(true).build());
+        poller.scheduleWithFixedDelay(this::pollAll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+        log.info("延迟队列启动, 主题: {}", handlers.keySet());
+    }
+
+    /**
+     * 添加延迟任务
+     *
+     * @param topic   主题
+     * @param payload 任务内容
+     * @param delay   延迟时间
+     * @param unit    时间单位
+     * @return 任务id
+     */
+    public String offer(String topic, String payload, long delay, TimeUnit unit) {
+        String id = UUID.randomUUID().toString();
+        offer(topic, id, payload, System.currentTimeMillis() + unit.toMillis(delay));
+        return id;
+    }
+
+    /**
+     * 添加定时任务, id已存在时覆盖内容和到期时间
+     *
+     * @param topic   主题
+     * @param id      任务id
+     * @param payload 任务内容
+     * @param dueTime 到期时间(毫秒时间戳)
+     */
+    public void offer(String topic, String id, String payload, long dueTime) {
+        stringRedisTemplate.execute(offerScript, Arrays.asList(getKey(topic), getKey(topic, "task")),
+                id, payload, String.valueOf(dueTime));
+    }
+
+    /**
+     * 取消尚未被领取的任务
+     *
+     * @param topic 主题
+     * @param id    任务id
+     * @return true-取消成功, false-任务不存在或已在执行
+     */
+    public boolean cancel(String topic, String id) {
+        Long result = stringRedisTemplate.execute(cancelScript,
+                Arrays.asList(getKey(topic), getKey(topic, "task"), getKey(topic, "attempts")), id);
+        return Consts.SUCCESS.equals(result);
+    }
+
+    /**
+     * 待执行任务数
+     *
+     * @param topic 主题
+     * @return 数量
+     */
+    public Long size(String topic) {
+        return stringRedisTemplate.opsForZSet().zCard(getKey(topic));
+    }
+
+    /**
+     * 查看死信
+     *
+     * @param topic 主题
+     * @param start 开始
+     * @param end   结束 0 到 -1代表所有值
+     * @return 死信(id:内容)
+     */
+    public List<String> deadLetters(String topic, long start, long end) {
+        return stringRedisTemplate.opsForList().range(getKey(topic, "dead"), start, end);
+    }
+
+    private void pollAll() {
+        handlers.forEach((topic, handler) -> {
+            try {
+                poll(topic, handler);
+            } catch (Exception e) {
+                log.error("延迟队列[{}]拉取失败", topic, e);
+            }
+        });
+    }
+
+    /**
+     * 按空闲容量领取, 满批时继续领取
+     */
+    @SuppressWarnings("unchecked")
+    private void poll(String topic, DelayTaskHandler handler) {
+        while (true) {
+            int limit = Math.min(batchSize, permits.availablePermits());
+            if (limit <= 0 || !permits.tryAcquire(limit)) {
+                return;
+            }
+            List<String> claimed;
+            try {
+                long now = System.currentTimeMillis();
+                claimed = stringRedisTemplate.execute(claimScript,
+                        Arrays.asList(getKey(topic), getKey(topic, "processing"), getKey(topic, "task"), getKey(topic, "attempts")),
+                        String.valueOf(now), String.valueOf(limit), String.valueOf(now + TimeUnit.SECONDS.toMillis(visibilityTimeout)));
+            } catch (RuntimeException e) {
+                permits.release(limit);
+                throw e;
+            }
+            int count = claimed == null ? 0 : claimed.size() / 3;
+            permits.release(limit - count);
+            for (int i = 0; i < count; i++) {
+                DelayTask task = new DelayTask(topic, claimed.get(i * 3), claimed.get(i * 3 + 1), Integer.parseInt(claimed.get(i * 3 + 2)));
+                executor.execute(() -> process(handler, task));
+            }
+            if (count < limit) {
+                return;
+            }
+        }
+    }
+
+    private void process(DelayTaskHandler handler, DelayTask task) {
+        int retries = handler.maxRetries() < 0 ? maxRetries : handler.maxRetries();
+        try {
+            if (task.getAttempts() > retries + 1) {
+                // 多次执行超时后重新领取
+                nack(task, -1);
+                return;
+            }
+            handler.handle(task);
+            ack(task);
+        } catch (Exception e) {
+            if (task.getAttempts() > retries) {
+                log.error("延迟任务[{}:{}]执行失败{}次, 转入死信", task.getTopic(), task.getId(), task.getAttempts(), e);
+                nack(task, -1);
+            } else {
+                long backoff = TimeUnit.SECONDS.toMillis(retryDelay) << Math.min(task.getAttempts() - 1, MAX_BACKOFF_SHIFT);
+                log.warn("延迟任务[{}:{}]第{}次执行失败, {}ms后重试", task.getTopic(), task.getId(), task.getAttempts(), backoff, e);
+                nack(task, System.currentTimeMillis() + backoff);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void ack(DelayTask task) {
+        String topic = task.getTopic();
+        Long result = stringRedisTemplate.execute(ackScript,
+                Arrays.asList(getKey(topic, "processing"), getKey(topic, "task"), getKey(topic, "attempts")), task.getId());
+        if (!Consts.SUCCESS.equals(result)) {
+            log.warn("延迟任务[{}:{}]确认时已超时, 可能被重复执行", topic, task.getId());
+        }
+    }
+
+    private void nack(DelayTask task, long retryAt) {
+        String topic = task.getTopic();
+        try {
+            stringRedisTemplate.execute(nackScript,
+                    Arrays.asList(getKey(topic, "processing"), getKey(topic), getKey(topic, "task"), getKey(topic, "attempts"), getKey(topic, "dead")),
+                    task.getId(), String.valueOf(retryAt));
+        } catch (Exception e) {
+            log.error("延迟任务[{}:{}]重试登记失败, 等待可见性超时后重新领取", topic, task.getId(), e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 未完成的任务在可见性超时后由其他节点重新领取
+        if (poller != null) {
+            poller.shutdownNow();
+            executor.shutdown();
+        }
+    }
+
+    private static DefaultRedisScript<Long> longScript(String path) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setResultType(Long.class);
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource(path)));
+        return script;
+    }
+
+    private static String getKey(String topic) {
+        return RedisKeyUtil.tagged(KEY_PREFIX, topic);
+    }
+
+    private static String getKey(String topic, String suffix) {
+        return getKey(topic) + ":" + suffix;
+    }
+}
@@ -0,0 +1,36 @@
+package com.yizhishang.redis.queue;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 延迟任务
+ *
+ * @author yizhishang
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class DelayTask {
+
+    /**
+     * 主题
+     */
+    private final String topic;
+
+    /**
+     * 任务id
+     */
+    private final String id;
+
+    /**
+     * 任务内容
+     */
+    private final String payload;
+
+    /**
+     * 第几次执行, 从1开始
+     */
+    private final int attempts;
+}
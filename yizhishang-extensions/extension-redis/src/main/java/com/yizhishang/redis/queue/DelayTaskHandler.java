@@ -0,0 +1,34 @@
+package com.yizhishang.redis.queue;
+
+/**
+ * 延迟任务处理器, 注册为bean后由 {@link DelayQueueService} 按主题拉取到期任务并调用
+ *
+ * @author yizhishang
+ */
+public interface DelayTaskHandler {
+
+    /**
+     * 处理的主题
+     *
+     * @return 主题
+     */
+    String topic();
+
+    /**
+     * 处理任务, 正常返回即确认完成; 抛出异常时按退避重试, 超过最大重试次数后转入死信
+     * <p>执行时间超过可见性超时的任务会被重新分配, 处理逻辑需保证幂等</p>
+     *
+     * @param task 任务
+     * @throws Exception 处理失败
+     */
+    void handle(DelayTask task) throws Exception;
+
+    /**
+     * 最大重试次数, 小于0时使用 spring.redis.delayQueue.maxRetries
+     *
+     * @return 次数
+     */
+    default int maxRetries() {
+        return -1;
+    }
+}
@@ -0,0 +1,269 @@
+package com.yizhishang.redis.stream;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * redis stream 消费组容器
+ * <pre>
+ * 1. 每个 {@link StreamMessageListener} 启动 concurrency 个消费线程, 每个线程独占一个连接循环 XREADGROUP COUNT BLOCK
+ * 2. 一批处理成功后一次XACK; 线程处理完当前批次才拉取下一批, 未确认消息数不超过 concurrency * batchSize(背压)
+ * 3. 每 claimInterval 秒检查pending列表, 空闲超过 minIdle 的消息XCLAIM后重新处理,
+ *    投递次数超过 maxDeliveries 的消息转入死信stream(原stream键:dead)并确认
+ * </pre>
+ *
+ * @author yizhishang
+ */
+@Slf4j
+@Component
+public class StreamConsumerContainer implements SmartInitializingSingleton {
+
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+
+    private static final String DEAD_SUFFIX = ":dead";
+
+    private static final String BUSY_GROUP = "BUSYGROUP";
+
+    /**
+     * 默认每批拉取数量
+     */
+    @Value("${spring.redis.stream.batchSize:100}")
+    private int batchSize;
+
+    /**
+     * XREADGROUP阻塞时间(毫秒)
+     */
+    @Value("${spring.redis.stream.block:2000}")
+    private long block;
+
+    /**
+     * pending检查间隔(秒)
+     */
+    @Value("${spring.redis.stream.claimInterval:30}")
+    private long claimInterval;
+
+    /**
+     * 消息空闲多久(秒)视为消费者失联, 重新投递
+     */
+    @Value("${spring.redis.stream.minIdle:60}")
+    private long minIdle;
+
+    /**
+     * 最大投递次数, 超过后转入死信
+     */
+    @Value("${spring.redis.stream.maxDeliveries:5}")
+    private long maxDeliveries;
+
+    /**
+     * 消费者名称前缀, 默认 pid@hostname
+     */
+    @Value("${spring.redis.stream.consumerName:}")
+    private String consumerName;
+
+    private final RedisConnectionFactory redisConnectionFactory;
+
+    private final ObjectProvider<StreamMessageListener> listenerProvider;
+
+    private final List<StreamMessageListener> listeners = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private ExecutorService consumers;
+
+    private ScheduledExecutorService claimer;
+
+    public StreamConsumerContainer(RedisConnectionFactory redisConnectionFactory, ObjectProvider<StreamMessageListener> listenerProvider) {
+        this.redisConnectionFactory = redisConnectionFactory;
+        this.listenerProvider = listenerProvider;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        listenerProvider.orderedStream().forEach(listeners::add);
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (consumerName.isEmpty()) {
+            consumerName = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        running = true;
+        consumers = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("stream-consumer-%d").setDaemon(true).build());
+        for (StreamMessageListener listener : listeners) {
+            createGroup(listener);
+            for (int i = 0; i < listener.concurrency(); i++) {
+                String name = consumerName + "-" + i;
+                consumers.execute(() -> consume(listener, name));
+            }
+            log.info("stream[{}]消费组[{}]启动, 消费线程: {}", listener.stream(), listener.group(), listener.concurrency());
+        }
+        claimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("stream-claimer-%d").setDaemon(true).build());
+        claimer.scheduleWithFixedDelay(this::claimAll, claimInterval, claimInterval, TimeUnit.SECONDS);
+    }
+
+    private void createGroup(StreamMessageListener listener) {
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            connection.streamCommands().xGroupCreate(rawKey(listener.stream()), listener.group(), ReadOffset.from("0"), true);
+        } catch (DataAccessException e) {
+            if (e.getMessage() == null || !e.getMessage().contains(BUSY_GROUP)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 消费线程: 独占连接循环拉取, 连接异常时重建
+     */
+    private void consume(StreamMessageListener listener, String name) {
+        Consumer consumer = Consumer.from(listener.group(), name);
+        StreamReadOptions options = StreamReadOptions.empty()
+                .count(listener.batchSize() > 0 ? listener.batchSize() : batchSize)
+                .block(Duration.ofMillis(block));
+        StreamOffset<byte[]> offset = StreamOffset.create(rawKey(listener.stream()), ReadOffset.lastConsumed());
+        RedisConnection connection = null;
+        while (running) {
+            try {
+                if (connection == null) {
+                    connection = redisConnectionFactory.getConnection();
+                }
+                @SuppressWarnings("unchecked")
+                List<ByteRecord> records = connection.streamCommands().xReadGroup(consumer, options, offset);
+                if (records != null && !records.isEmpty()) {
+                    dispatch(connection, listener, records);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.error("stream[{}]消费者[{}]拉取失败", listener.stream(), name, e);
+                close(connection);
+                connection = null;
+                sleep(block);
+            }
+        }
+        close(connection);
+    }
+
+    /**
+     * 处理一批消息, 成功后整批确认
+     */
+    private void dispatch(RedisConnection connection, StreamMessageListener listener, List<ByteRecord> records) {
+        List<MapRecord<String, String, String>> messages = records.stream()
+                .map(record -> record.deserialize(STRING_SERIALIZER))
+                .collect(Collectors.toList());
+        try {
+            listener.onMessages(messages);
+        } catch (Exception e) {
+            log.error("stream[{}]处理{}条消息失败, 等待重新投递", listener.stream(), messages.size(), e);
+            return;
+        }
+        RecordId[] ids = messages.stream().map(MapRecord::getId).toArray(RecordId[]::new);
+        connection.streamCommands().xAck(rawKey(listener.stream()), listener.group(), ids);
+    }
+
+    private void claimAll() {
+        for (StreamMessageListener listener : listeners) {
+            try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+                claim(connection, listener);
+            } catch (Exception e) {
+                log.error("stream[{}]消费组[{}]重新投递失败", listener.stream(), listener.group(), e);
+            }
+        }
+    }
+
+    /**
+     * XPENDING找出空闲超时的消息, XCLAIM到本节点重新处理(XAUTOCLAIM需要redis 6.2, 这里用XPENDING+XCLAIM实现)
+     */
+    private void claim(RedisConnection connection, StreamMessageListener listener) {
+        byte[] key = rawKey(listener.stream());
+        long count = listener.batchSize() > 0 ? listener.batchSize() : batchSize;
+        Duration idle = Duration.ofSeconds(minIdle);
+        PendingMessages pending = connection.streamCommands().xPending(key, listener.group(), RedisStreamCommands.XPendingOptions.unbounded(count));
+        List<RecordId> retry = new ArrayList<>();
+        List<RecordId> dead = new ArrayList<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(idle) < 0) {
+                continue;
+            }
+            (message.getTotalDeliveryCount() > maxDeliveries ? dead : retry).add(message.getId());
+        }
+        String claimerName = consumerName + "-claimer";
+        if (!dead.isEmpty()) {
+            List<ByteRecord> records = connection.streamCommands().xClaim(key, listener.group(), claimerName,
+                    RedisStreamCommands.XClaimOptions.minIdle(idle).ids(dead.toArray(new RecordId[0])));
+            byte[] deadKey = rawKey(listener.stream() + DEAD_SUFFIX);
+            // 只确认本次XCLAIM到(已被其他节点确认或重新认领的不在其中)并已写入死信的消息
+            List<RecordId> moved = new ArrayList<>(records.size());
+            for (ByteRecord record : records) {
+                connection.streamCommands().xAdd(StreamRecords.newRecord().in(deadKey).ofMap(record.getValue()));
+                moved.add(record.getId());
+            }
+            if (!moved.isEmpty()) {
+                connection.streamCommands().xAck(key, listener.group(), moved.toArray(new RecordId[0]));
+                log.warn("stream[{}]{}条消息投递超过{}次, 转入死信", listener.stream(), moved.size(), maxDeliveries);
+            }
+        }
+        if (!retry.isEmpty()) {
+            List<ByteRecord> records = connection.streamCommands().xClaim(key, listener.group(), claimerName,
+                    RedisStreamCommands.XClaimOptions.minIdle(idle).ids(retry.toArray(new RecordId[0])));
+            if (!records.isEmpty()) {
+                dispatch(connection, listener, records);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        claimer.shutdownNow();
+        consumers.shutdown();
+        try {
+            // 阻塞中的XREADGROUP最多等待block毫秒返回
+            consumers.awaitTermination(block + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void close(RedisConnection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.debug("关闭redis连接失败", e);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] rawKey(String key) {
+        return STRING_SERIALIZER.serialize(key);
+    }
+}
@@ -0,0 +1,54 @@
+package com.yizhishang.redis.stream;
+
+import org.springframework.data.redis.connection.stream.MapRecord;
+
+import java.util.List;
+
+/**
+ * redis stream 消费者, 注册为bean后由 {@link StreamConsumerContainer} 以消费组方式批量拉取并调用
+ *
+ * @author yizhishang
+ */
+public interface StreamMessageListener {
+
+    /**
+     * stream键
+     *
+     * @return 键
+     */
+    String stream();
+
+    /**
+     * 消费组, 不存在时自动创建(从头消费)
+     *
+     * @return 消费组名称
+     */
+    String group();
+
+    /**
+     * 每批最多拉取数量, 小于等于0时使用 spring.redis.stream.batchSize
+     *
+     * @return 数量
+     */
+    default int batchSize() {
+        return -1;
+    }
+
+    /**
+     * 消费线程数(组内消费者数量)
+     *
+     * @return 线程数
+     */
+    default int concurrency() {
+        return 1;
+    }
+
+    /**
+     * 处理一批消息, 正常返回后整批XACK; 抛出异常时整批保留在pending列表, 空闲超时后重新投递
+     * <p>消息可能被重复投递, 处理逻辑需保证幂等</p>
+     *
+     * @param messages 消息
+     * @throws Exception 处理失败
+     */
+    void onMessages(List<MapRecord<String, String, String>> messages) throws Exception;
+}
@@ -0,0 +1,93 @@
+package com.yizhishang.redis.stream;
+
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * redis stream 生产端
+ *
+ * @author yizhishang
+ */
+@Component
+public class StreamService {
+
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public StreamService(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 发送消息(XADD)
+     *
+     * @param stream stream键
+     * @param body   消息内容
+     * @return 消息id
+     */
+    public RecordId add(String stream, Map<String, String> body) {
+        return stringRedisTemplate.opsForStream().add(StreamRecords.newRecord().in(stream).ofMap(body));
+    }
+
+    /**
+     * 发送消息并限制stream长度(XADD MAXLEN)
+     *
+     * @param stream stream键
+     * @param body   消息内容
+     * @param maxLen 最大长度, 超出时删除最早的消息
+     * @return 消息id
+     */
+    public RecordId add(String stream, Map<String, String> body, long maxLen) {
+        MapRecord<byte[], byte[], byte[]> record = StreamRecords.newRecord().in(stream).ofMap(body).serialize(STRING_SERIALIZER);
+        return stringRedisTemplate.execute((RedisCallback<RecordId>) connection ->
+                connection.streamCommands().xAdd(record, RedisStreamCommands.XAddOptions.maxlen(maxLen)));
+    }
+
+    /**
+     * 批量发送消息(XADD管道, 一次往返)
+     *
+     * @param stream stream键
+     * @param bodies 消息内容
+     * @return 与bodies顺序一致的消息id
+     */
+    public List<Object> addAll(String stream, Collection<Map<String, String>> bodies) {
+        return stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map<String, String> body : bodies) {
+                connection.streamCommands().xAdd(StreamRecords.newRecord().in(stream).ofMap(body).serialize(STRING_SERIALIZER));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * stream长度
+     *
+     * @param stream stream键
+     * @return 长度
+     */
+    public Long size(String stream) {
+        return stringRedisTemplate.opsForStream().size(stream);
+    }
+
+    /**
+     * 裁剪stream
+     *
+     * @param stream stream键
+     * @param maxLen 保留的最大长度
+     * @return 删除的数量
+     */
+    public Long trim(String stream, long maxLen) {
+        return stringRedisTemplate.opsForStream().trim(stream, maxLen);
+    }
+}
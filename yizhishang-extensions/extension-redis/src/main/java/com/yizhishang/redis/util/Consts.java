@@ -22,4 +22,8 @@ public class Consts {
     public static final String SYSTEM_ERROR = "系错误...";
 
     public static final String REDIS_OPERATE_ERROR = "redis操作异常";
+
+    public static final String REDIS_CIRCUIT_OPEN = "redis熔断中";
+
+    public static final String DUPLICATE_REQUEST = "请求正在处理中, 请勿重复提交";
 }
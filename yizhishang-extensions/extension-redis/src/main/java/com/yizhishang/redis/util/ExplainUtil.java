@@ -28,9 +28,18 @@ public class ExplainUtil {
     }
 
     public static String explainKey(String key, ProceedingJoinPoint pjd) {
+        return explainKey(key, ((CodeSignature) pjd.getSignature()).getParameterNames(), pjd.getArgs());
+    }
 
-        Object[] args = pjd.getArgs();
-        String[] paramNames = ((CodeSignature) pjd.getSignature()).getParameterNames();
+    /**
+     * 不经过切面解析key(如缓存预热), 结果与切面中一致
+     *
+     * @param key        如 #user.username:#orderCode:test
+     * @param paramNames 参数名
+     * @param args       参数值
+     * @return 以":"开头的key
+     */
+    public static String explainKey(String key, String[] paramNames, Object[] args) {
 
         Map<String, Object> paramMap = Maps.newHashMap();
 
@@ -0,0 +1,65 @@
+package com.yizhishang.redis.util;
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+/**
+ * redis key 工具类(集群模式)
+ * <p>集群模式下lua脚本、MGET、ZUNIONSTORE等多key命令要求所有key在同一个slot, 使用hash tag {...} 保证相关key落在同一slot</p>
+ *
+ * @author yizhishang
+ */
+public class RedisKeyUtil {
+
+    private RedisKeyUtil() {
+
+    }
+
+    /**
+     * 为key加hash tag: key -> {key}, 已包含hash tag时原样返回
+     *
+     * @param key 键
+     * @return 带hash tag的键
+     */
+    public static String hashTag(String key) {
+        if (hasHashTag(key)) {
+            return key;
+        }
+        return "{" + key + "}";
+    }
+
+    /**
+     * 拼接带hash tag的键: prefix + {tag}
+     *
+     * @param prefix 前缀
+     * @param tag    决定slot的部分
+     * @return 带hash tag的键
+     */
+    public static String tagged(String prefix, String tag) {
+        return prefix + hashTag(tag);
+    }
+
+    /**
+     * 是否已包含有效hash tag: 第一个'{'之后存在'}'且中间不为空
+     *
+     * @param key 键
+     * @return true-已包含
+     */
+    public static boolean hasHashTag(String key) {
+        int start = key.indexOf('{');
+        if (start < 0) {
+            return false;
+        }
+        int end = key.indexOf('}', start + 1);
+        return end > start + 1;
+    }
+
+    /**
+     * 计算key所在slot
+     *
+     * @param key 键
+     * @return slot [0, 16384)
+     */
+    public static int slot(String key) {
+        return ClusterSlotHashUtil.calculateSlot(key);
+    }
+}
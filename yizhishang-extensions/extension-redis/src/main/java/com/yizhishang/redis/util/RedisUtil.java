@@ -3,19 +3,23 @@ package com.yizhishang.redis.util;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.yizhishang.redis.RedisException;
+import com.yizhishang.redis.breaker.RedisCircuitBreaker;
+import com.yizhishang.redis.hotkey.HotKeyService;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
 import javax.validation.constraints.NotNull;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.Set;
+import java.io.IOException;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * redis工具类
@@ -39,6 +43,12 @@ public class RedisUtil {
     @Value("${spring.redis.cache.randomTime:1800}")
     private int randomTime;
 
+    /**
+     * 游标遍历每批数量(SCAN COUNT, 分段LRANGE长度)
+     */
+    @Value("${spring.redis.cache.scanCount:500}")
+    private int scanCount;
+
     private final RedisTemplate<String, Object> redisTemplate;
 
     private final ValueOperations<String, Object> valueOperations;
@@ -51,15 +61,21 @@ public class RedisUtil {
 
     private final ZSetOperations<String, Object> zSetOperations;
 
+    private final HotKeyService hotKeyService;
+
+    private final RedisCircuitBreaker circuitBreaker;
+
     private final Random random;
 
-    public RedisUtil(RedisTemplate<String, Object> redisTemplate, ValueOperations<String, Object> valueOperations, HashOperations<String, String, Object> hashOperations, ListOperations<String, Object> listOperations, SetOperations<String, Object> setOperations, ZSetOperations<String, Object> zSetOperations) {
+    public RedisUtil(RedisTemplate<String, Object> redisTemplate, ValueOperations<String, Object> valueOperations, HashOperations<String, String, Object> hashOperations, ListOperations<String, Object> listOperations, SetOperations<String, Object> setOperations, ZSetOperations<String, Object> zSetOperations, HotKeyService hotKeyService, RedisCircuitBreaker circuitBreaker) {
         this.redisTemplate = redisTemplate;
         this.valueOperations = valueOperations;
         this.hashOperations = hashOperations;
         this.listOperations = listOperations;
         this.setOperations = setOperations;
         this.zSetOperations = zSetOperations;
+        this.hotKeyService = hotKeyService;
+        this.circuitBreaker = circuitBreaker;
         this.random = new Random();
     }
 
@@ -127,18 +143,13 @@ public class RedisUtil {
     }
 
     /**
-     * 判断key是否存在
+     * 判断key是否存在, redis不可用(含熔断)时抛出异常, 不会当作不存在
      *
      * @param key 键
      * @return true-存在、false-不存在
      */
     public Boolean hasKey(@NonNull String key) {
-        try {
-            return redisTemplate.hasKey(key);
-        } catch (Exception e) {
-            log.error(Consts.REDIS_OPERATE_ERROR, e);
-            return Boolean.FALSE;
-        }
+        return hotKeyService.hasKey(key, () -> circuitBreaker.execute(() -> redisTemplate.hasKey(key)));
     }
 
     /**
@@ -148,10 +159,13 @@ public class RedisUtil {
      */
     public void remove(String... key) {
         if (key != null && key.length > 0) {
+            for (String k : key) {
+                hotKeyService.invalidate(k);
+            }
             if (key.length == 1) {
-                redisTemplate.delete(key[0]);
+                circuitBreaker.execute(() -> redisTemplate.delete(key[0]));
             } else {
-                redisTemplate.delete(CollectionUtils.arrayToList(key));
+                circuitBreaker.execute(() -> redisTemplate.delete(CollectionUtils.arrayToList(key)));
             }
         }
     }
@@ -165,7 +179,11 @@ public class RedisUtil {
      */
     public boolean set(@NonNull String key, Object value) {
         try {
-            valueOperations.set(key, value);
+            circuitBreaker.execute(() -> {
+                valueOperations.set(key, value);
+                return null;
+            });
+            hotKeyService.invalidate(key);
             return true;
         } catch (Exception e) {
             log.error(Consts.REDIS_OPERATE_ERROR, e);
@@ -184,7 +202,11 @@ public class RedisUtil {
     public boolean set(@NonNull String key, Object value, long expireTime) {
         try {
             if (expireTime > 0) {
-                valueOperations.set(key, value, expireTime, TimeUnit.SECONDS);
+                circuitBreaker.execute(() -> {
+                    valueOperations.set(key, value, expireTime, TimeUnit.SECONDS);
+                    return null;
+                });
+                hotKeyService.invalidate(key);
             } else {
                 set(key, value);
             }
@@ -195,6 +217,39 @@ public class RedisUtil {
         }
     }
 
+    /**
+     * 批量放入(SET EX管道, 一次往返)
+     *
+     * @param values     键 -> 值
+     * @param expireTime 时间(秒), 为0时每个key按 {@link #getRandomExpire(long)} 随机, 防止同时过期
+     */
+    @SuppressWarnings("unchecked")
+    public void setAll(@NonNull Map<String, Object> values, long expireTime) {
+        if (values.isEmpty()) {
+            return;
+        }
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        circuitBreaker.execute(() -> redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            values.forEach((key, value) -> connection.setEx(keySerializer.serialize(key), getRandomExpire(expireTime), valueSerializer.serialize(value)));
+            return null;
+        }));
+        values.keySet().forEach(hotKeyService::invalidate);
+    }
+
+    /**
+     * 不存在时放入并设置时间(SET NX PX)
+     *
+     * @param key     键
+     * @param value   值
+     * @param timeout 时间
+     * @param unit    时间单位
+     * @return true-放入成功 false-键已存在
+     */
+    public boolean setIfAbsent(@NonNull String key, Object value, long timeout, TimeUnit unit) {
+        return Boolean.TRUE.equals(circuitBreaker.execute(() -> valueOperations.setIfAbsent(key, value, timeout, unit)));
+    }
+
     /**
      * 普通缓存获取
      *
@@ -202,7 +257,7 @@ public class RedisUtil {
      * @return 值
      */
     public Object get(@NonNull String key) {
-        return valueOperations.get(key);
+        return hotKeyService.get(key, () -> circuitBreaker.execute(() -> valueOperations.get(key)));
     }
 
     /**
@@ -216,6 +271,19 @@ public class RedisUtil {
         return value == null ? null : (String) value;
     }
 
+    /**
+     * 批量获取(MGET, 一次往返)
+     *
+     * @param keys 键
+     * @return 与keys顺序一致的值, 不存在的键为null
+     */
+    public List<Object> mget(@NonNull Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return valueOperations.multiGet(keys);
+    }
+
     /**
      * 递增 1
      *
@@ -234,7 +302,9 @@ public class RedisUtil {
         if (delta < 0) {
             throw new RedisException("递增因子必须大于0");
         }
-        return valueOperations.increment(key, delta);
+        Long value = valueOperations.increment(key, delta);
+        hotKeyService.invalidate(key);
+        return value;
     }
 
     /**
@@ -246,13 +316,36 @@ public class RedisUtil {
         if (delta < 0) {
             throw new RedisException("递减因子必须大于0");
         }
-        return valueOperations.increment(key, -delta);
+        Long value = valueOperations.increment(key, -delta);
+        hotKeyService.invalidate(key);
+        return value;
+    }
+
+    /**
+     * 批量递增(INCRBY管道, 一次往返)
+     *
+     * @param deltas 键 -> 递增因子(可为负数)
+     * @return 与deltas迭代顺序一致的递增后的值
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> incrAll(@NonNull Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return Collections.emptyList();
+        }
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        List<Object> result = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            deltas.forEach((key, delta) -> connection.incrBy(keySerializer.serialize(key), delta));
+            return null;
+        });
+        List<Long> values = new ArrayList<>(result.size());
+        result.forEach(value -> values.add((Long) value));
+        return values;
     }
 
     /**================================HashOperations操作=================================*/
 
     /**
-     * HashKeys
+     * HashKeys<p>大hash请使用 {@link #hscan(String)}</p>
      *
      * @param key 键 不能为null
      * @return 值
@@ -269,11 +362,11 @@ public class RedisUtil {
      * @return 值
      */
     public Object hget(@NonNull String key, String item) {
-        return hashOperations.get(key, item);
+        return hotKeyService.hget(key, item, () -> circuitBreaker.execute(() -> hashOperations.get(key, item)));
     }
 
     /**
-     * 获取hashKey对应的所有键值对
+     * 获取hashKey对应的所有键值对<p>大hash请使用 {@link #hscan(String)}</p>
      *
      * @param key 键
      * @return 对应的多个键值
@@ -297,6 +390,7 @@ public class RedisUtil {
     public boolean hashPutAll(@NonNull String key, Map<String, Object> map) {
         try {
             hashOperations.putAll(key, map);
+            hotKeyService.invalidate(key);
             return true;
         } catch (Exception e) {
             log.error(Consts.REDIS_OPERATE_ERROR, e);
@@ -315,6 +409,7 @@ public class RedisUtil {
     public boolean hashPutAll(@NonNull String key, Map<String, Object> map, long time) {
         try {
             hashOperations.putAll(key, map);
+            hotKeyService.invalidate(key);
             if (time > 0) {
                 expire(key, time);
             }
@@ -336,6 +431,7 @@ public class RedisUtil {
     public boolean hashPut(@NonNull String key, String item, Object value) {
         try {
             hashOperations.put(key, item, value);
+            hotKeyService.invalidate(key);
             return true;
         } catch (Exception e) {
             log.error(Consts.REDIS_OPERATE_ERROR, e);
@@ -355,6 +451,7 @@ public class RedisUtil {
     public boolean hashPut(@NonNull String key, String item, Object value, long time) {
         try {
             hashOperations.put(key, item, value);
+            hotKeyService.invalidate(key);
             if (time > 0) {
                 expire(key, time);
             }
@@ -373,6 +470,7 @@ public class RedisUtil {
      */
     public void hashDelete(@NonNull String key, Object... item) {
         hashOperations.delete(key, item);
+        hotKeyService.invalidate(key);
     }
 
     /**
@@ -394,7 +492,9 @@ public class RedisUtil {
      * @param by   要增加几(大于0)
      */
     public double hincr(@NonNull String key, String item, double by) {
-        return hashOperations.increment(key, item, by);
+        double value = hashOperations.increment(key, item, by);
+        hotKeyService.invalidate(key);
+        return value;
     }
 
     /**
@@ -405,7 +505,9 @@ public class RedisUtil {
      * @param by   要减少记(小于0)
      */
     public double hdecr(@NonNull String key, String item, double by) {
-        return hashOperations.increment(key, item, -by);
+        double value = hashOperations.increment(key, item, -by);
+        hotKeyService.invalidate(key);
+        return value;
     }
 
     /**
@@ -421,6 +523,7 @@ public class RedisUtil {
 
     /**
      * ============================set============================= /** 根据key获取Set中的所有值
+     * <p>大集合请使用 {@link #sscan(String)}</p>
      *
      * @param key 键
      */
@@ -533,7 +636,7 @@ public class RedisUtil {
     }
 
     /**
-     * 获取list缓存的所有内容
+     * 获取list缓存的所有内容<p>大list请使用 {@link #listStream(String)}</p>
      */
     public List<Object> listRange(@NonNull String key) {
         return listRange(key, 0, -1);
@@ -735,4 +838,196 @@ public class RedisUtil {
     public Set<ZSetOperations.TypedTuple<Object>> zReverseRangeWithScores(@NotNull String key, long start, long end) {
         return zSetOperations.reverseRangeWithScores(key, start, end);
     }
-}
\ No newline at end of file
+
+    /**============================游标遍历(SCAN)=============================*/
+    /**
+     * 按匹配模式遍历key(SCAN), 每批数量默认 spring.redis.cache.scanCount
+     * <p>返回的流持有redis连接, 必须关闭: try (Stream&lt;String&gt; keys = redisUtil.scan("user:*")) {...}</p>
+     *
+     * @param pattern 匹配模式, 为空时遍历全部
+     * @return key流
+     */
+    public Stream<String> scan(String pattern) {
+        return scan(pattern, scanCount);
+    }
+
+    /**
+     * 按匹配模式遍历key(SCAN)
+     *
+     * @param pattern 匹配模式, 为空时遍历全部
+     * @param count   每批数量
+     * @return key流, 使用完毕需关闭
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<String> scan(String pattern, int count) {
+        ScanOptions options = scanOptions(pattern, count);
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        Cursor<String> cursor = redisTemplate.executeWithStickyConnection(
+                connection -> new ConvertingCursor<>(connection.scan(options), keySerializer::deserialize));
+        return cursorStream(cursor);
+    }
+
+    /**
+     * 遍历hash的所有键值对(HSCAN)
+     *
+     * @param key 键
+     * @return 键值对流, 使用完毕需关闭
+     */
+    public Stream<Map.Entry<String, Object>> hscan(@NonNull String key) {
+        return hscan(key, null, scanCount);
+    }
+
+    /**
+     * 遍历hash中匹配的键值对(HSCAN)
+     *
+     * @param key     键
+     * @param pattern 项匹配模式, 为空时遍历全部
+     * @param count   每批数量
+     * @return 键值对流, 使用完毕需关闭
+     */
+    public Stream<Map.Entry<String, Object>> hscan(@NonNull String key, String pattern, int count) {
+        return cursorStream(hashOperations.scan(key, scanOptions(pattern, count)));
+    }
+
+    /**
+     * 遍历set的所有成员(SSCAN)
+     *
+     * @param key 键
+     * @return 成员流, 使用完毕需关闭
+     */
+    public Stream<Object> sscan(@NonNull String key) {
+        return sscan(key, null, scanCount);
+    }
+
+    /**
+     * 遍历set中匹配的成员(SSCAN)
+     *
+     * @param key     键
+     * @param pattern 成员匹配模式, 为空时遍历全部
+     * @param count   每批数量
+     * @return 成员流, 使用完毕需关闭
+     */
+    public Stream<Object> sscan(@NonNull String key, String pattern, int count) {
+        return cursorStream(setOperations.scan(key, scanOptions(pattern, count)));
+    }
+
+    /**
+     * 遍历zSet的所有成员及分值(ZSCAN), 不保证按分值排序
+     *
+     * @param key 键
+     * @return 成员流, 使用完毕需关闭
+     */
+    public Stream<ZSetOperations.TypedTuple<Object>> zscan(@NonNull String key) {
+        return zscan(key, null, scanCount);
+    }
+
+    /**
+     * 遍历zSet中匹配的成员及分值(ZSCAN)
+     *
+     * @param key     键
+     * @param pattern 成员匹配模式, 为空时遍历全部
+     * @param count   每批数量
+     * @return 成员流, 使用完毕需关闭
+     */
+    public Stream<ZSetOperations.TypedTuple<Object>> zscan(@NonNull String key, String pattern, int count) {
+        return cursorStream(zSetOperations.scan(key, scanOptions(pattern, count)));
+    }
+
+    /**
+     * 分段遍历list的所有元素(LRANGE), 每次只加载一段到内存
+     *
+     * @param key 键
+     * @return 元素流
+     */
+    public Stream<Object> listStream(@NonNull String key) {
+        return listStream(key, scanCount);
+    }
+
+    /**
+     * 分段遍历list的所有元素(LRANGE)
+     * <p>遍历期间list被修改时, 可能重复或遗漏元素</p>
+     *
+     * @param key       键
+     * @param batchSize 每段长度
+     * @return 元素流
+     */
+    public Stream<Object> listStream(@NonNull String key, int batchSize) {
+        Iterator<Object> iterator = new ListRangeIterator(listOperations, key, batchSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    private static ScanOptions scanOptions(String pattern, int count) {
+        ScanOptions.ScanOptionsBuilder builder = ScanOptions.scanOptions().count(count);
+        if (StringUtils.isNotBlank(pattern)) {
+            builder.match(pattern);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 游标转为流, 关闭流时释放游标占用的连接
+     */
+    private static <T> Stream<T> cursorStream(Cursor<T> cursor) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        cursor.close();
+                    } catch (IOException e) {
+                        log.error(Consts.REDIS_OPERATE_ERROR, e);
+                    }
+                });
+    }
+
+    /**
+     * 分段LRANGE迭代器
+     */
+    private static class ListRangeIterator implements Iterator<Object> {
+
+        private final ListOperations<String, Object> listOperations;
+
+        private final String key;
+
+        private final int batchSize;
+
+        private List<Object> batch = Collections.emptyList();
+
+        private int index;
+
+        private long offset;
+
+        private boolean finished;
+
+        ListRangeIterator(ListOperations<String, Object> listOperations, String key, int batchSize) {
+            if (batchSize <= 0) {
+                throw new RedisException("分段长度必须大于0");
+            }
+            this.listOperations = listOperations;
+            this.key = key;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (index < batch.size()) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+            List<Object> next = listOperations.range(key, offset, offset + batchSize - 1);
+            batch = next == null ? Collections.emptyList() : next;
+            index = 0;
+            offset += batch.size();
+            finished = batch.size() < batchSize;
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.get(index++);
+        }
+    }
+}
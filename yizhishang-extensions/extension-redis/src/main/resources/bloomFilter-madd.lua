@@ -0,0 +1,13 @@
+-- KEYS[1] 布隆过滤器名称
+-- ARGV    待添加的值(多个)
+-- 返回每个值的添加结果: 1-新添加, 0-可能已存在
+
+local result = {}
+local batch = 1000
+for i = 1, #ARGV, batch do
+    local added = redis.call('BF.MADD', KEYS[1], unpack(ARGV, i, math.min(i + batch - 1, #ARGV)))
+    for _, v in ipairs(added) do
+        result[#result + 1] = v
+    end
+end
+return result
@@ -0,0 +1,13 @@
+-- KEYS[1] 布隆过滤器名称
+-- ARGV    待判断的值(多个)
+-- 返回每个值的判断结果: 1-可能存在, 0-一定不存在
+
+local result = {}
+local batch = 1000
+for i = 1, #ARGV, batch do
+    local exists = redis.call('BF.MEXISTS', KEYS[1], unpack(ARGV, i, math.min(i + batch - 1, #ARGV)))
+    for _, v in ipairs(exists) do
+        result[#result + 1] = v
+    end
+end
+return result
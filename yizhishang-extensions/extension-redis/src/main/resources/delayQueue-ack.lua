@@ -0,0 +1,10 @@
+-- KEYS[1] 执行中zset, KEYS[2] 任务内容hash, KEYS[3] 执行次数hash
+-- ARGV[1] 任务id
+-- 返回 1-成功, 0-任务已不在执行中(超时被重新分配)
+
+if redis.call('ZREM', KEYS[1], ARGV[1]) == 0 then
+    return 0
+end
+redis.call('HDEL', KEYS[2], ARGV[1])
+redis.call('HDEL', KEYS[3], ARGV[1])
+return 1
@@ -0,0 +1,25 @@
+-- KEYS[1] 待执行zset, KEYS[2] 执行中zset, KEYS[3] 任务内容hash, KEYS[4] 执行次数hash
+-- ARGV[1] 当前时间(毫秒), ARGV[2] 本批最大数量, ARGV[3] 可见性超时截止时间(毫秒)
+-- 返回 {id, 内容, 执行次数, id, 内容, 执行次数, ...}
+
+-- 执行超时(节点宕机、未ack)的任务放回待执行
+local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])
+for _, id in ipairs(expired) do
+    redis.call('ZREM', KEYS[2], id)
+    redis.call('ZADD', KEYS[1], ARGV[1], id)
+end
+
+local result = {}
+local ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])
+for _, id in ipairs(ids) do
+    redis.call('ZREM', KEYS[1], id)
+    local payload = redis.call('HGET', KEYS[3], id)
+    if payload then
+        redis.call('ZADD', KEYS[2], ARGV[3], id)
+        local attempts = redis.call('HINCRBY', KEYS[4], id, 1)
+        result[#result + 1] = id
+        result[#result + 1] = payload
+        result[#result + 1] = tostring(attempts)
+    end
+end
+return result
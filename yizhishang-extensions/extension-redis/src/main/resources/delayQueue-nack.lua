@@ -0,0 +1,18 @@
+-- KEYS[1] 执行中zset, KEYS[2] 待执行zset, KEYS[3] 任务内容hash, KEYS[4] 执行次数hash, KEYS[5] 死信list
+-- ARGV[1] 任务id, ARGV[2] 重试时间(毫秒), 小于0时转入死信
+-- 返回 1-成功, 0-任务已不在执行中(超时被重新分配)
+
+if redis.call('ZREM', KEYS[1], ARGV[1]) == 0 then
+    return 0
+end
+if tonumber(ARGV[2]) >= 0 then
+    redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1])
+    return 1
+end
+local payload = redis.call('HGET', KEYS[3], ARGV[1])
+if payload then
+    redis.call('RPUSH', KEYS[5], ARGV[1] .. ':' .. payload)
+end
+redis.call('HDEL', KEYS[3], ARGV[1])
+redis.call('HDEL', KEYS[4], ARGV[1])
+return 1
@@ -0,0 +1,6 @@
+-- KEYS[1] 待执行zset, KEYS[2] 任务内容hash
+-- ARGV[1] 任务id, ARGV[2] 任务内容, ARGV[3] 到期时间(毫秒)
+
+redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])
+redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])
+return 1
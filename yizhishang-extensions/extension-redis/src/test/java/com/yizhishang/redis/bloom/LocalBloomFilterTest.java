@@ -0,0 +1,65 @@
+package com.yizhishang.redis.bloom;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link LocalBloomFilter} 测试
+ *
+ * @author yizhishang
+ */
+class LocalBloomFilterTest {
+
+    @Test
+    void mergeReadsRedisBitOrder() {
+        BloomFilterHelper helper = new BloomFilterHelper(1000, 0.01);
+        byte[] bitmap = new byte[(int) ((helper.getBitSize() + 7) / 8)];
+        for (int i = 0; i < 100; i++) {
+            for (long offset : helper.offsets("value-" + i)) {
+                // SETBIT: 每个字节的最高位为低偏移量
+                bitmap[(int) (offset >>> 3)] |= (byte) (0x80 >>> (offset & 7));
+            }
+        }
+
+        LocalBloomFilter filter = new LocalBloomFilter(helper);
+        filter.merge(bitmap);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(filter.mightContain("value-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 20, "误判过多: " + falsePositives);
+    }
+
+    @Test
+    void mergeKeepsLocalBits() {
+        LocalBloomFilter filter = new LocalBloomFilter(1000, 0.01);
+        filter.put("local");
+        filter.merge(new byte[(int) ((filter.getHelper().getBitSize() + 7) / 8)]);
+        filter.merge(null);
+        assertTrue(filter.mightContain("local"));
+    }
+
+    @Test
+    void mergeIgnoresBitsBeyondFilter() {
+        LocalBloomFilter filter = new LocalBloomFilter(1000, 0.01);
+        byte[] bitmap = new byte[(int) ((filter.getHelper().getBitSize() + 7) / 8) + 64];
+        bitmap[bitmap.length - 1] = (byte) 0xff;
+        filter.merge(bitmap);
+        assertFalse(filter.mightContain("absent"));
+    }
+
+    @Test
+    void putReportsChange() {
+        LocalBloomFilter filter = new LocalBloomFilter(1000, 0.01);
+        assertTrue(filter.put("a"));
+        assertFalse(filter.put("a"));
+        assertTrue(filter.mightContain("a"));
+    }
+}
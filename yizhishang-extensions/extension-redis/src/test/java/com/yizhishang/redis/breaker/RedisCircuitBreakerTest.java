@@ -0,0 +1,123 @@
+package com.yizhishang.redis.breaker;
+
+import com.yizhishang.redis.RedisException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link RedisCircuitBreaker} 状态切换测试
+ *
+ * @author yizhishang
+ */
+class RedisCircuitBreakerTest {
+
+    private RedisCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "windowSize", 10);
+        ReflectionTestUtils.setField(breaker, "minCalls", 4);
+        ReflectionTestUtils.setField(breaker, "failureRate", 50);
+        ReflectionTestUtils.setField(breaker, "slowCall", 60_000L);
+        ReflectionTestUtils.setField(breaker, "slowCallRate", 80);
+        ReflectionTestUtils.setField(breaker, "openDuration", 60L);
+        ReflectionTestUtils.setField(breaker, "halfOpenCalls", 2);
+        breaker.init();
+    }
+
+    @Test
+    void staysClosedBelowMinCalls() {
+        fail(3);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensAtFailureRate() {
+        succeed(2);
+        fail(2);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isOpen());
+        assertThrows(RedisException.class, () -> breaker.execute(() -> "x"));
+    }
+
+    @Test
+    void windowSlidesOutOldFailures() {
+        fail(1);
+        succeed(9);
+        // 第一次失败被挤出窗口, 4/10 不足50%
+        fail(4);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+        fail(1);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void opensAtSlowCallRate() {
+        ReflectionTestUtils.setField(breaker, "slowCall", 0L);
+        succeed(4);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulProbes() {
+        fail(4);
+        ReflectionTestUtils.setField(breaker, "openDuration", 0L);
+        succeed(1);
+        assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        succeed(1);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+        // 关闭后窗口清空, 需要重新累计 minCalls 次
+        fail(3);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenReopensOnFailure() {
+        fail(4);
+        ReflectionTestUtils.setField(breaker, "openDuration", 0L);
+        fail(1);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenLimitsProbes() {
+        fail(4);
+        ReflectionTestUtils.setField(breaker, "openDuration", 0L);
+        // 探测调用未返回时, 超出 halfOpenCalls 的调用被拒绝
+        breaker.execute(() -> {
+            breaker.execute(() -> {
+                assertThrows(RedisException.class, () -> breaker.execute(() -> "x"));
+                return null;
+            });
+            return null;
+        });
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void disabledPassesThrough() {
+        ReflectionTestUtils.setField(breaker, "enabled", false);
+        fail(10);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.isOpen());
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.execute(() -> "ok");
+        }
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThrows(IllegalStateException.class, () -> breaker.execute(() -> {
+                throw new IllegalStateException("redis error");
+            }));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.yizhishang.redis.hotkey;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link LossyCounter} 测试
+ *
+ * @author yizhishang
+ */
+class LossyCounterTest {
+
+    @Test
+    void keepsFrequentKeysAndPrunesRareOnes() {
+        LossyCounter counter = new LossyCounter(0.01);
+        for (int i = 0; i < 1000; i++) {
+            counter.add("hot");
+            counter.add("key-" + i);
+        }
+        counter.prune();
+
+        Map<String, Long> frequent = counter.frequent(1);
+        assertEquals(1000L, frequent.get("hot"));
+        // 2000次访问 = 20个桶, 只有最后一个桶内新增的低频key可能保留
+        assertTrue(frequent.size() <= 101, "未淘汰低频key: " + frequent.size());
+        assertEquals(1, counter.frequent(500).size());
+    }
+
+    @Test
+    void underestimatesByAtMostEpsilonN() {
+        double epsilon = 0.01;
+        LossyCounter counter = new LossyCounter(epsilon);
+        int total = 0;
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                counter.add("noise-" + round + "-" + i);
+                total++;
+            }
+            for (int i = 0; i < 5; i++) {
+                counter.add("warm");
+                total++;
+            }
+            counter.prune();
+        }
+        Long warm = counter.frequent(1).get("warm");
+        assertNotNull(warm);
+        assertTrue(warm >= 250 - epsilon * total, "计数偏小超过epsilon * N: " + warm);
+        assertTrue(warm <= 250);
+    }
+
+    @Test
+    void resetClears() {
+        LossyCounter counter = new LossyCounter(0.01);
+        counter.add("a");
+        counter.reset();
+        assertTrue(counter.frequent(1).isEmpty());
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws InterruptedException {
+        LossyCounter counter = new LossyCounter(0.001);
+        int threads = 8;
+        int perThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    counter.add("hot");
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        counter.prune();
+        assertEquals((long) threads * perThread, counter.frequent(1).get("hot"));
+    }
+}
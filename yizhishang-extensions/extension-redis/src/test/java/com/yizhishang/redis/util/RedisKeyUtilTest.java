@@ -0,0 +1,47 @@
+package com.yizhishang.redis.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link RedisKeyUtil} 测试
+ *
+ * @author yizhishang
+ */
+class RedisKeyUtilTest {
+
+    @Test
+    void slotMatchesRedisCluster() {
+        // CLUSTER KEYSLOT 的结果
+        assertEquals(12182, RedisKeyUtil.slot("foo"));
+        assertEquals(5061, RedisKeyUtil.slot("bar"));
+    }
+
+    @Test
+    void slotUsesHashTag() {
+        int slot = RedisKeyUtil.slot("user");
+        assertEquals(slot, RedisKeyUtil.slot("{user}:1"));
+        assertEquals(slot, RedisKeyUtil.slot("lock.{user}"));
+        // 空的 {} 不是hash tag, 按整个key计算
+        assertNotEquals(RedisKeyUtil.slot("{}user"), RedisKeyUtil.slot("{}other"));
+    }
+
+    @Test
+    void hashTagWrapsOnlyWhenMissing() {
+        assertEquals("{user:1}", RedisKeyUtil.hashTag("user:1"));
+        assertEquals("{user}:1", RedisKeyUtil.hashTag("{user}:1"));
+        assertEquals("{{}user}", RedisKeyUtil.hashTag("{}user"));
+        assertEquals("{a}b{}", RedisKeyUtil.hashTag("a}b{"));
+        assertEquals("lock.{user}", RedisKeyUtil.tagged("lock.", "user"));
+    }
+
+    @Test
+    void hasHashTag() {
+        assertTrue(RedisKeyUtil.hasHashTag("{a}"));
+        assertTrue(RedisKeyUtil.hasHashTag("x{a}y{b}"));
+        assertFalse(RedisKeyUtil.hasHashTag("{}a"));
+        assertFalse(RedisKeyUtil.hasHashTag("a}b{"));
+        assertFalse(RedisKeyUtil.hasHashTag("ab"));
+    }
+}